@@ -0,0 +1,107 @@
+package com.github.davidmarquis.redisscheduler.benchmarks;
+
+import com.github.davidmarquis.redisscheduler.RedisDriver;
+import com.github.davidmarquis.redisscheduler.RedisTaskScheduler;
+import com.github.davidmarquis.redisscheduler.TaskTriggerListener;
+import com.github.davidmarquis.redisscheduler.drivers.jedis.JedisDriver;
+import com.github.davidmarquis.redisscheduler.drivers.lettuce.LettuceDriver;
+import com.github.davidmarquis.redisscheduler.drivers.spring.RedisTemplateDriver;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Embedded Redis server along with a driver connected to it, created for the duration of a benchmark trial.
+ */
+class BenchmarkRedis implements AutoCloseable {
+
+    private static final int PORT = 6390;
+    private static final int MAX_CONNECTIONS = 64;
+
+    private final RedisServer server;
+    private final Deque<AutoCloseable> resources = new ArrayDeque<>();
+    private RedisDriver driver;
+
+    private BenchmarkRedis() throws IOException {
+        server = new RedisServer(PORT);
+        server.start();
+    }
+
+    /**
+     * Starts an embedded Redis server and connects to it using the given driver: one of `jedis`, `lettuce` or `spring`.
+     */
+    static BenchmarkRedis start(String driverName) throws IOException {
+        BenchmarkRedis redis = new BenchmarkRedis();
+        redis.driver = redis.connect(driverName);
+        return redis;
+    }
+
+    RedisDriver driver() {
+        return driver;
+    }
+
+    RedisTaskScheduler newScheduler(String name, TaskTriggerListener listener) {
+        RedisTaskScheduler scheduler = new RedisTaskScheduler(driver, listener);
+        scheduler.setSchedulerName(name);
+        resources.push(scheduler::close);
+        return scheduler;
+    }
+
+    @Override
+    public void close() {
+        while (!resources.isEmpty()) {
+            try {
+                resources.pop().close();
+            } catch (Exception e) {
+                // best effort: the server is stopped anyway.
+            }
+        }
+        server.stop();
+    }
+
+    private RedisDriver connect(String driverName) {
+        switch (driverName) {
+            case "jedis":
+                JedisPoolConfig poolConfig = new JedisPoolConfig();
+                poolConfig.setMaxTotal(MAX_CONNECTIONS);
+                JedisPool pool = new JedisPool(poolConfig, "localhost", PORT);
+                resources.push(pool::close);
+                return new JedisDriver(pool);
+
+            case "lettuce":
+                RedisClient client = RedisClient.create(RedisURI.create("localhost", PORT));
+                resources.push(client::shutdown);
+                LettuceDriver lettuceDriver = new LettuceDriver(client);
+                resources.push(lettuceDriver::close);
+                return lettuceDriver;
+
+            case "spring":
+                JedisPoolConfig springPoolConfig = new JedisPoolConfig();
+                springPoolConfig.setMaxTotal(MAX_CONNECTIONS);
+                JedisConnectionFactory connectionFactory = new JedisConnectionFactory(springPoolConfig);
+                connectionFactory.setHostName("localhost");
+                connectionFactory.setPort(PORT);
+                connectionFactory.afterPropertiesSet();
+                resources.push(connectionFactory::destroy);
+
+                RedisTemplate<String, String> template = new RedisTemplate<>();
+                template.setConnectionFactory(connectionFactory);
+                template.setKeySerializer(new StringRedisSerializer());
+                template.setValueSerializer(new StringRedisSerializer());
+                template.afterPropertiesSet();
+                return new RedisTemplateDriver(template);
+
+            default:
+                throw new IllegalArgumentException("Unknown driver: " + driverName);
+        }
+    }
+}
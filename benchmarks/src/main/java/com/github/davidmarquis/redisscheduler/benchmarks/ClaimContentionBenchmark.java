@@ -0,0 +1,119 @@
+package com.github.davidmarquis.redisscheduler.benchmarks;
+
+import com.github.davidmarquis.redisscheduler.RedisTaskScheduler;
+import com.github.davidmarquis.redisscheduler.TaskTriggerListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Latency of a single claim ({@link RedisTaskScheduler#triggerNextTaskIfFound()}) while other instances of the same
+ * scheduler are claiming from the same backlog. Triggered tasks are scheduled again right away, so that the backlog
+ * never runs out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClaimContentionBenchmark {
+
+    private static final String SCHEDULER_NAME = "claim-benchmark";
+    private static final int PARTITIONED_SHARDS = 16;
+
+    @Param({"jedis", "lettuce", "spring"})
+    public String driver;
+
+    /**
+     * Number of schedulers claiming from the backlog, including the measured one.
+     */
+    @Param({"1", "4", "16"})
+    public int competingSchedulers;
+
+    @Param({"1000"})
+    public int backlogSize;
+
+    /**
+     * Whether the 16 shards of the backlog are split between schedulers, rather than all schedulers claiming from a
+     * single shard.
+     */
+    @Param({"false", "true"})
+    public boolean partitioned;
+
+    private BenchmarkRedis redis;
+    private RedisTaskScheduler scheduler;
+    private ExecutorService rescheduler;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        redis = BenchmarkRedis.start(driver);
+
+        // the measured scheduler is started on an empty backlog so that its own poller goes idle for good,
+        // leaving the benchmark thread as its only claimer.
+        scheduler = newScheduler(this::reschedule);
+        scheduler.setPollingDelayMillis(Integer.MAX_VALUE);
+        rescheduler = Executors.newSingleThreadExecutor();
+        scheduler.setTaskExecutor(rescheduler);
+        scheduler.unscheduleAllTasks();
+        scheduler.start();
+        Thread.sleep(200);
+
+        Instant now = Instant.now();
+        Map<String, Instant> triggerTimes = new LinkedHashMap<>();
+        for (int i = 0; i < backlogSize; i++) {
+            triggerTimes.put("task-" + i, now);
+        }
+        scheduler.scheduleAll(triggerTimes);
+
+        for (int i = 1; i < competingSchedulers; i++) {
+            List<RedisTaskScheduler> competitor = new ArrayList<>(1);
+            competitor.add(newScheduler(taskId -> competitor.get(0).runNow(taskId)));
+            competitor.get(0).start();
+        }
+    }
+
+    private RedisTaskScheduler newScheduler(TaskTriggerListener listener) {
+        RedisTaskScheduler newScheduler = redis.newScheduler(SCHEDULER_NAME, listener);
+        if (partitioned) {
+            newScheduler.setShards(PARTITIONED_SHARDS);
+            newScheduler.setPartitionedShards(true);
+        }
+        return newScheduler;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rescheduler.shutdownNow();
+        redis.close();
+    }
+
+    @Benchmark
+    public boolean claim() throws InterruptedException {
+        return scheduler.triggerNextTaskIfFound();
+    }
+
+    private void reschedule(String taskId) {
+        scheduler.runNow(taskId);
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.davidmarquis.redisscheduler.benchmarks;
+
+import com.github.davidmarquis.redisscheduler.RedisTaskScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Time taken by a single scheduler to trigger a backlog of tasks that are all due.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DrainBenchmark {
+
+    @Param({"jedis", "lettuce", "spring"})
+    public String driver;
+
+    @Param({"10000"})
+    public int backlogSize;
+
+    @Param({"1", "16", "128"})
+    public int claimBatchSize;
+
+    private BenchmarkRedis redis;
+    private RedisTaskScheduler scheduler;
+    private CountDownLatch drained;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        redis = BenchmarkRedis.start(driver);
+    }
+
+    @Setup(Level.Invocation)
+    public void fillBacklog() {
+        CountDownLatch latch = new CountDownLatch(backlogSize);
+        drained = latch;
+
+        scheduler = redis.newScheduler("drain-benchmark", taskId -> latch.countDown());
+        scheduler.setClaimBatchSize(claimBatchSize);
+
+        Instant now = Instant.now();
+        Map<String, Instant> triggerTimes = new LinkedHashMap<>();
+        for (int i = 0; i < backlogSize; i++) {
+            triggerTimes.put("task-" + i, now);
+        }
+        scheduler.scheduleAll(triggerTimes);
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopScheduler() {
+        scheduler.stop();
+        scheduler.unscheduleAllTasks();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redis.close();
+    }
+
+    @Benchmark
+    public void drain() throws InterruptedException {
+        scheduler.start();
+        drained.await();
+    }
+}
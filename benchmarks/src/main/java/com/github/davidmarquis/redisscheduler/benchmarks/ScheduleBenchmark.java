@@ -0,0 +1,88 @@
+package com.github.davidmarquis.redisscheduler.benchmarks;
+
+import com.github.davidmarquis.redisscheduler.RedisTaskScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Throughput of scheduling tasks, one at a time from concurrent threads or in bulk. Tasks are scheduled far enough in
+ * the future that they are never triggered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleBenchmark {
+
+    private static final int BULK_SIZE = 1000;
+
+    @Param({"jedis", "lettuce", "spring"})
+    public String driver;
+
+    private final AtomicLong taskIds = new AtomicLong();
+    private BenchmarkRedis redis;
+    private RedisTaskScheduler scheduler;
+    private Instant triggerTime;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        redis = BenchmarkRedis.start(driver);
+        scheduler = redis.newScheduler("schedule-benchmark", taskId -> {});
+        triggerTime = Instant.now().plus(1, DAYS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() {
+        scheduler.unscheduleAllTasks();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redis.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void scheduleAt() {
+        scheduler.scheduleAt("task-" + taskIds.incrementAndGet(), triggerTime);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void scheduleAtAsync() {
+        scheduler.scheduleAtAsync("task-" + taskIds.incrementAndGet(), triggerTime).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public void scheduleAll() {
+        Map<String, Instant> triggerTimes = new LinkedHashMap<>();
+        for (int i = 0; i < BULK_SIZE; i++) {
+            triggerTimes.put("task-" + taskIds.incrementAndGet(), triggerTime);
+        }
+        scheduler.scheduleAll(triggerTimes);
+    }
+}
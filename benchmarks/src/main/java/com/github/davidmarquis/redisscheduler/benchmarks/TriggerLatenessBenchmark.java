@@ -0,0 +1,89 @@
+package com.github.davidmarquis.redisscheduler.benchmarks;
+
+import com.github.davidmarquis.redisscheduler.RedisTaskScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * End-to-end time between scheduling a task for immediate execution and its trigger, which is mostly made of the
+ * time spent waiting for the next poll. Percentiles are reported by JMH's sample time mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class TriggerLatenessBenchmark {
+
+    private static final int AHEAD_MILLIS = 200;
+
+    @Param({"jedis", "lettuce", "spring"})
+    public String driver;
+
+    @Param({"100"})
+    public int pollingDelayMillis;
+
+    @Param({"false", "true"})
+    public boolean wakeupNotifications;
+
+    @Param({"0", "1000"})
+    public int lookaheadMillis;
+
+    private final AtomicLong taskIds = new AtomicLong();
+    private final BlockingQueue<String> triggeredTasks = new LinkedBlockingQueue<>();
+    private BenchmarkRedis redis;
+    private RedisTaskScheduler scheduler;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        redis = BenchmarkRedis.start(driver);
+
+        scheduler = redis.newScheduler("lateness-benchmark", triggeredTasks::add);
+        scheduler.setPollingDelayMillis(pollingDelayMillis);
+        scheduler.setWakeupNotifications(wakeupNotifications);
+        scheduler.setLookaheadMillis(lookaheadMillis);
+        scheduler.unscheduleAllTasks();
+        scheduler.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redis.close();
+    }
+
+    @Benchmark
+    public String scheduleAndAwaitTrigger() throws InterruptedException {
+        scheduler.scheduleAt("task-" + taskIds.incrementAndGet(), Instant.now());
+        return triggeredTasks.poll(10, SECONDS);
+    }
+
+    /**
+     * Same as {@link #scheduleAndAwaitTrigger()}, for a task due {@value #AHEAD_MILLIS}ms later: the lateness is the
+     * measured time minus that delay. Tasks scheduled ahead can be buffered in lookahead mode.
+     */
+    @Benchmark
+    public String scheduleAheadAndAwaitTrigger() throws InterruptedException {
+        scheduler.scheduleAt("task-" + taskIds.incrementAndGet(), Instant.now().plusMillis(AHEAD_MILLIS));
+        return triggeredTasks.poll(10, SECONDS);
+    }
+}
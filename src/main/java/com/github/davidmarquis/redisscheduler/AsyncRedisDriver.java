@@ -0,0 +1,24 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link RedisDriver}, for drivers backed by an asynchronous client. Commands return
+ * immediately, and the returned stages complete once Redis has replied. Connection failures complete stages
+ * exceptionally with a {@link RedisConnectException}.
+ */
+public interface AsyncRedisDriver {
+
+    <T> CompletionStage<T> fetchAsync(Function<AsyncCommands, CompletionStage<T>> block);
+
+    interface AsyncCommands {
+        CompletionStage<Void> addToSetWithScore(String key, String taskId, long score);
+
+        CompletionStage<Void> removeFromSet(String key, String taskId);
+
+        CompletionStage<Void> removeFromHash(String key, String field);
+
+        CompletionStage<Void> publish(String channel, String message);
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks whether Redis is reachable. The circuit opens on each connection failure, for a backoff delay which doubles
+ * on each consecutive failure up to a maximum, and is randomly shortened by up to half so that instances do not all
+ * reconnect at once. Once the delay elapsed, the circuit is half-open until the next attempt closes it again, or opens
+ * it for a longer delay.
+ */
+class CircuitBreaker {
+
+    private static final double JITTER = 0.5;
+    private static final int MAX_DOUBLINGS = 30;
+
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final LongSupplier nanoTime;
+
+    private volatile int consecutiveFailures = 0;
+    private long openUntilNanos;
+
+    CircuitBreaker(long initialBackoffMillis, long maxBackoffMillis) {
+        this(initialBackoffMillis, maxBackoffMillis, System::nanoTime);
+    }
+
+    CircuitBreaker(long initialBackoffMillis, long maxBackoffMillis, LongSupplier nanoTime) {
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.nanoTime = nanoTime;
+    }
+
+    CircuitState state() {
+        if (consecutiveFailures == 0) {
+            return CircuitState.CLOSED;
+        }
+        return remainingOpenMillis() > 0 ? CircuitState.OPEN : CircuitState.HALF_OPEN;
+    }
+
+    /**
+     * @return how long the circuit stays open, or 0 if it is not open.
+     */
+    synchronized long remainingOpenMillis() {
+        if (consecutiveFailures == 0) {
+            return 0;
+        }
+        long remainingNanos = openUntilNanos - nanoTime.getAsLong();
+        return remainingNanos > 0 ? TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1 : 0;
+    }
+
+    void recordSuccess() {
+        if (consecutiveFailures != 0) {
+            synchronized (this) {
+                consecutiveFailures = 0;
+            }
+        }
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(consecutiveFailures - 1, MAX_DOUBLINGS));
+        long jitteredBackoff = (long) (backoff * (1 - JITTER * ThreadLocalRandom.current().nextDouble()));
+        openUntilNanos = nanoTime.getAsLong() + TimeUnit.MILLISECONDS.toNanos(jitteredBackoff);
+    }
+}
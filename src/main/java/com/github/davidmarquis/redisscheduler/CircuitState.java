@@ -0,0 +1,20 @@
+package com.github.davidmarquis.redisscheduler;
+
+/**
+ * State of the connection of a scheduler to Redis, as seen by its circuit breaker (see
+ * {@link RedisTaskScheduler#circuitState()}).
+ */
+public enum CircuitState {
+    /**
+     * Redis is reachable.
+     */
+    CLOSED,
+    /**
+     * Redis was unreachable on the last attempt: polling is suspended until the backoff delay elapsed.
+     */
+    OPEN,
+    /**
+     * The backoff delay elapsed: the next attempt tells whether Redis is reachable again.
+     */
+    HALF_OPEN
+}
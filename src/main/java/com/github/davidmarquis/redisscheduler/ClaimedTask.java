@@ -0,0 +1,135 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A task removed from the schedule by a poller, along with the time at which it was due and its payload, when
+ * payloads were fetched.
+ */
+public final class ClaimedTask {
+
+    private final String taskId;
+    private final long triggerTimeMillis;
+    private final byte[] payload;
+    private final Status status;
+    private final String storedRecurrence;
+    private final long recurrenceBaseMillis;
+    private final int failedAttempts;
+
+    enum Status {
+        /**
+         * A one-off task, removed from the schedule or leased.
+         */
+        ONCE,
+        /**
+         * An occurrence of a recurring task, which was scheduled at its next occurrence.
+         */
+        RECURRING,
+        /**
+         * A recurring task whose next occurrence must be computed before it can be triggered.
+         */
+        PENDING
+    }
+
+    public ClaimedTask(String taskId, long triggerTimeMillis) {
+        this(taskId, triggerTimeMillis, null);
+    }
+
+    public ClaimedTask(String taskId, long triggerTimeMillis, byte[] payload) {
+        this(taskId, triggerTimeMillis, payload, Status.ONCE, null, 0, 0);
+    }
+
+    private ClaimedTask(String taskId, long triggerTimeMillis, byte[] payload, Status status, String storedRecurrence,
+                        long recurrenceBaseMillis, int failedAttempts) {
+        this.taskId = taskId;
+        this.triggerTimeMillis = triggerTimeMillis;
+        this.payload = payload;
+        this.status = status;
+        this.storedRecurrence = storedRecurrence;
+        this.recurrenceBaseMillis = recurrenceBaseMillis;
+        this.failedAttempts = failedAttempts;
+    }
+
+    public String taskId() {
+        return taskId;
+    }
+
+    public long triggerTimeMillis() {
+        return triggerTimeMillis;
+    }
+
+    /**
+     * @return the payload of the task, empty if it was scheduled without payload, or <code>null</code> if payloads
+     * were not fetched.
+     */
+    public byte[] payload() {
+        return payload;
+    }
+
+    Status status() {
+        return status;
+    }
+
+    /**
+     * @return the recurrence of a cron task as stored in Redis when claimed, or <code>null</code> if the next
+     * occurrence of the task does not need to be computed.
+     */
+    String storedRecurrence() {
+        return storedRecurrence;
+    }
+
+    /**
+     * @return the occurrence from which the next occurrence of a cron task must be computed.
+     */
+    long recurrenceBaseMillis() {
+        return recurrenceBaseMillis;
+    }
+
+    /**
+     * @return the number of failed attempts to execute this task so far, when a retry policy is set.
+     */
+    int failedAttempts() {
+        return failedAttempts;
+    }
+
+    /**
+     * Parses the flat array returned by the claim script: for each member, its score, its Base64-encoded payload,
+     * its status, its recurrence along with the occurrence from which to compute the next one, and its number of failed
+     * attempts.
+     */
+    static List<ClaimedTask> fromReply(List<String> reply, boolean withPayloads) {
+        int stride = 7;
+        List<ClaimedTask> claimed = new ArrayList<>(reply.size() / stride);
+        for (int i = 0; i + stride - 1 < reply.size(); i += stride) {
+            long score = (long) Double.parseDouble(reply.get(i + 1));
+            byte[] payload = withPayloads ? decodePayload(reply.get(i + 2)) : null;
+            Status status = Status.valueOf(reply.get(i + 3).toUpperCase(Locale.ROOT));
+            String storedRecurrence = reply.get(i + 4).isEmpty() ? null : reply.get(i + 4);
+            long recurrenceBase = storedRecurrence == null ? 0 : (long) Double.parseDouble(reply.get(i + 5));
+            int failedAttempts = Integer.parseInt(reply.get(i + 6));
+
+            claimed.add(new ClaimedTask(reply.get(i), score, payload, status, storedRecurrence, recurrenceBase,
+                                        failedAttempts));
+        }
+        return claimed;
+    }
+
+    /**
+     * Payloads are stored as Base64 text, as all drivers exchange strings with Redis.
+     */
+    static String encodePayload(byte[] payload) {
+        return Base64.getEncoder().encodeToString(payload);
+    }
+
+    static byte[] decodePayload(String encoded) {
+        return Base64.getDecoder().decode(encoded);
+    }
+
+    @Override
+    public String toString() {
+        return taskId + "@" + triggerTimeMillis;
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Stores a trailing UUID as <code>#</code> followed by its 16 bytes in URL-safe Base64, and a trailing number as
+ * <code>=</code> followed by its value in base 64 digits, when shorter. Other IDs are kept as is, unless they could be
+ * mistaken for an encoded ID: a <code>#</code> is then appended, and removed when decoding.
+ */
+final class CompactTaskIdCodec implements TaskIdCodec {
+
+    static final TaskIdCodec INSTANCE = new CompactTaskIdCodec();
+
+    private static final char UUID_MARKER = '#';
+    private static final char NUMBER_MARKER = '=';
+    private static final char ESCAPE = '#';
+    private static final int UUID_LENGTH = 36;
+    private static final int ENCODED_UUID_LENGTH = 22;
+    private static final int MAX_NUMBER_DIGITS = 18;
+    private static final int MAX_ENCODED_NUMBER_LENGTH = 10;
+    private static final String DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    private CompactTaskIdCodec() {
+    }
+
+    @Override
+    public String encode(String taskId) {
+        int uuidStart = taskId.length() - UUID_LENGTH;
+        if (uuidStart >= 0 && isCanonicalUuid(taskId, uuidStart)) {
+            UUID uuid = UUID.fromString(taskId.substring(uuidStart));
+            byte[] bytes = ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits())
+                                     .putLong(uuid.getLeastSignificantBits()).array();
+            return taskId.substring(0, uuidStart) + UUID_MARKER + Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        }
+
+        int numberStart = numberStart(taskId);
+        int digits = taskId.length() - numberStart;
+        if (digits > 0 && digits <= MAX_NUMBER_DIGITS) {
+            String encoded = toDigits(Long.parseLong(taskId.substring(numberStart)));
+            if (encoded.length() + 1 < digits) {
+                return taskId.substring(0, numberStart) + NUMBER_MARKER + encoded;
+            }
+        }
+
+        return looksEncoded(taskId) ? taskId + ESCAPE : taskId;
+    }
+
+    @Override
+    public String decode(String member) {
+        if (member.isEmpty()) {
+            return member;
+        }
+        if (member.charAt(member.length() - 1) == ESCAPE) {
+            return member.substring(0, member.length() - 1);
+        }
+
+        int encodedLength = trailingDigitsLength(member);
+        int markerIndex = member.length() - encodedLength - 1;
+        if (markerIndex < 0) {
+            return member;
+        }
+        String prefix = member.substring(0, markerIndex);
+        String encoded = member.substring(markerIndex + 1);
+        if (isEncodedUuid(member.charAt(markerIndex), encoded)) {
+            ByteBuffer bytes = ByteBuffer.wrap(Base64.getUrlDecoder().decode(encoded));
+            return prefix + new UUID(bytes.getLong(), bytes.getLong());
+        }
+        if (isEncodedNumber(member.charAt(markerIndex), encoded)) {
+            return prefix + fromDigits(encoded);
+        }
+        return member;
+    }
+
+    /**
+     * @return whether the ID would be changed when decoded, were it stored as is.
+     */
+    private boolean looksEncoded(String taskId) {
+        return !decode(taskId).equals(taskId);
+    }
+
+    private static boolean isEncodedUuid(char marker, String encoded) {
+        return marker == UUID_MARKER && encoded.length() == ENCODED_UUID_LENGTH;
+    }
+
+    private static boolean isEncodedNumber(char marker, String encoded) {
+        return marker == NUMBER_MARKER && !encoded.isEmpty() && encoded.length() <= MAX_ENCODED_NUMBER_LENGTH
+               && encoded.charAt(0) != DIGITS.charAt(0);
+    }
+
+    private static boolean isCanonicalUuid(String taskId, int start) {
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = taskId.charAt(start + i);
+            boolean valid = i == 8 || i == 13 || i == 18 || i == 23 ? c == '-' : (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the index of the first significant digit of the number ending the ID, or the length of the ID when it
+     * does not end with a number other than zero.
+     */
+    private static int numberStart(String taskId) {
+        int start = taskId.length();
+        while (start > 0 && taskId.charAt(start - 1) >= '0' && taskId.charAt(start - 1) <= '9') {
+            start--;
+        }
+        while (start < taskId.length() && taskId.charAt(start) == '0') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * @return the number of base 64 digits ending the given string.
+     */
+    private static int trailingDigitsLength(String value) {
+        int length = 0;
+        while (length < value.length() && DIGITS.indexOf(value.charAt(value.length() - 1 - length)) >= 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static String toDigits(long value) {
+        StringBuilder digits = new StringBuilder();
+        for (long remaining = value; remaining > 0; remaining >>>= 6) {
+            digits.append(DIGITS.charAt((int) (remaining & 63)));
+        }
+        return digits.reverse().toString();
+    }
+
+    private static long fromDigits(String digits) {
+        long value = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            value = (value << 6) | DIGITS.indexOf(digits.charAt(i));
+        }
+        return value;
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * Standard 5-field cron expression: minute, hour, day of month, month and day of week. Each field accepts
+ * <code>*</code>, single values, ranges (<code>1-5</code>), steps (<code>*&#47;15</code>, <code>0-30/10</code>) and
+ * lists of those (<code>1,15,30</code>). Months and days of week also accept their 3-letter English names, and
+ * Sunday is both 0 and 7. As in most cron implementations, a day matches if either the day of month or the day of
+ * week matches, when both are restricted: a field is restricted when it does not match every day, so
+ * <code>*&#47;2</code> is restricted while <code>1-31</code> is not.
+ */
+class CronExpression {
+
+    private static final String[] MONTHS = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+    private static final String[] DAYS_OF_WEEK = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+    private static final int MAX_YEARS_AHEAD = 5;
+
+    private final String expression;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    private CronExpression(String expression) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException(String.format("Cron expression [%s] must have 5 fields.", expression));
+        }
+
+        this.expression = expression;
+        this.minutes = parseField(fields[0], 0, 59, null, expression);
+        this.hours = parseField(fields[1], 0, 23, null, expression);
+        this.daysOfMonth = parseField(fields[2], 1, 31, null, expression);
+        this.months = parseField(fields[3], 1, 12, MONTHS, expression);
+        this.daysOfWeek = parseField(fields[4], 0, 7, DAYS_OF_WEEK, expression);
+        if (daysOfWeek.get(7)) {
+            daysOfWeek.set(0);
+        }
+        // a field is unrestricted when it matches every day, however it is written (*, 1-31, 0-7...).
+        this.anyDayOfMonth = daysOfMonth.nextClearBit(1) > 31;
+        this.anyDayOfWeek = daysOfWeek.nextClearBit(0) > 6;
+    }
+
+    static CronExpression parse(String expression) {
+        return new CronExpression(expression);
+    }
+
+    /**
+     * @return the first time matching this expression strictly after the given time, in the same time zone.
+     */
+    ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        int maxYear = time.getYear() + MAX_YEARS_AHEAD;
+
+        while (time.getYear() <= maxYear) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay(time.getZone());
+            } else if (!matchesDay(time)) {
+                time = time.toLocalDate().plusDays(1).atStartOfDay(time.getZone());
+            } else if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+        throw new IllegalStateException(String.format("Cron expression [%s] never matches.", expression));
+    }
+
+    private boolean matchesDay(ZonedDateTime time) {
+        boolean dayOfMonth = daysOfMonth.get(time.getDayOfMonth());
+        boolean dayOfWeek = daysOfWeek.get(time.getDayOfWeek().getValue() % 7);
+
+        if (anyDayOfMonth || anyDayOfWeek) {
+            return dayOfMonth && dayOfWeek;
+        }
+        return dayOfMonth || dayOfWeek;
+    }
+
+    private static BitSet parseField(String field, int min, int max, String[] names, String expression) {
+        BitSet values = new BitSet(max + 1);
+        try {
+            for (String part : field.split(",")) {
+                int step = 1;
+                int slash = part.indexOf('/');
+                if (slash >= 0) {
+                    step = Integer.parseInt(part.substring(slash + 1));
+                    part = part.substring(0, slash);
+                }
+
+                int from;
+                int to;
+                if (part.equals("*")) {
+                    from = min;
+                    to = max;
+                } else if (part.indexOf('-') > 0) {
+                    from = parseValue(part.substring(0, part.indexOf('-')), min, names);
+                    to = parseValue(part.substring(part.indexOf('-') + 1), min, names);
+                } else {
+                    from = parseValue(part, min, names);
+                    to = slash >= 0 ? max : from;
+                }
+
+                if (from < min || to > max || from > to || step < 1) {
+                    throw new IllegalArgumentException();
+                }
+                for (int value = from; value <= to; value += step) {
+                    values.set(value);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Invalid field [%s] in cron expression [%s].", field, expression));
+        }
+        return values;
+    }
+
+    private static int parseValue(String value, int min, String[] names) {
+        if (names != null) {
+            String upperCase = value.toUpperCase(Locale.ROOT);
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(upperCase)) {
+                    return i + min;
+                }
+            }
+        }
+        return Integer.parseInt(value);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.davidmarquis.redisscheduler;
+
+/**
+ * Tunes the delay between polls so that the 99th percentile of the trigger lateness stays under a target, while
+ * polling as rarely as possible. Lateness is measured over fixed windows: the delay is halved after a window that
+ * missed the target, and raised by 10% after a window that stayed well under it.
+ */
+class LatenessController {
+
+    private static final double PERCENTILE = 0.99;
+    private static final double HEADROOM = 0.8;
+
+    private final long targetMillis;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final long windowMillis;
+
+    private final LatenessHistogram histogram = new LatenessHistogram();
+    private long delayMillis;
+    private long windowEndMillis = -1;
+
+    LatenessController(long targetMillis, long minDelayMillis, long maxDelayMillis, long windowMillis) {
+        this.targetMillis = targetMillis;
+        this.minDelayMillis = minDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.windowMillis = windowMillis;
+        this.delayMillis = maxDelayMillis;
+    }
+
+    synchronized void record(long latenessMillis) {
+        histogram.record(latenessMillis);
+    }
+
+    /**
+     * @return the delay to wait before the next poll, adjusted first if the current measurement window is over.
+     */
+    synchronized long delayMillis(long nowMillis) {
+        if (windowEndMillis < 0) {
+            windowEndMillis = nowMillis + windowMillis;
+        } else if (nowMillis >= windowEndMillis) {
+            adjustDelay();
+            histogram.reset();
+            windowEndMillis = nowMillis + windowMillis;
+        }
+        return delayMillis;
+    }
+
+    private void adjustDelay() {
+        long lateness = histogram.percentile(PERCENTILE);
+        if (lateness > targetMillis) {
+            delayMillis = Math.max(minDelayMillis, delayMillis / 2);
+        } else if (lateness < targetMillis * HEADROOM) {
+            delayMillis = Math.min(maxDelayMillis, delayMillis + Math.max(1, delayMillis / 10));
+        }
+    }
+}
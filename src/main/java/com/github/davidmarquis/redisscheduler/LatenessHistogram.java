@@ -0,0 +1,67 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of lateness values, in milliseconds. As in HdrHistogram, values are counted in log-linear buckets: values
+ * under 64 are counted exactly, and larger values with a relative error of at most about 3%. Not thread-safe.
+ */
+class LatenessHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT_VALUES = SUB_BUCKETS * 2;
+    private static final int FIRST_EXPONENT = SUB_BUCKET_BITS + 1;
+
+    private final long[] counts = new long[bucketIndex(Long.MAX_VALUE) + 1];
+    private long totalCount;
+
+    void record(long value) {
+        counts[bucketIndex(Math.max(0, value))]++;
+        totalCount++;
+    }
+
+    long totalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return the highest value of the bucket holding the given percentile (between 0 and 1) of the recorded values,
+     * or zero if no value was recorded.
+     */
+    long percentile(double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValueOfBucket(i);
+            }
+        }
+        return 0;
+    }
+
+    void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < EXACT_VALUES) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return EXACT_VALUES + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValueOfBucket(int index) {
+        if (index < EXACT_VALUES) {
+            return index;
+        }
+        int exponent = (index - EXACT_VALUES) / SUB_BUCKETS + FIRST_EXPONENT;
+        int subBucket = (index - EXACT_VALUES) % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+    }
+}
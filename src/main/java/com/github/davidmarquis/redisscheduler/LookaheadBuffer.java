@@ -0,0 +1,122 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local copy of the tasks scheduled within the next lookahead window, held in a timer wheel so that each task can be
+ * claimed right at its trigger time. Buffered tasks are not claimed: they stay in Redis until their trigger time, when
+ * they are claimed atomically like any other due task. Tasks that were unscheduled, rescheduled or claimed by another
+ * instance meanwhile are then skipped.
+ * <p>
+ * The buffer holds a bounded number of tasks. The horizon is the time up to which all scheduled tasks are known to be
+ * buffered: the buffer must be refilled once it is reached.
+ */
+class LookaheadBuffer {
+
+    private final int lookaheadMillis;
+    private final int capacity;
+    private final TimerWheel<Entry> wheel;
+
+    private volatile long horizonMillis = Long.MIN_VALUE;
+    private volatile boolean refillRequested = false;
+
+    LookaheadBuffer(int lookaheadMillis, int capacity, long nowMillis) {
+        this.lookaheadMillis = lookaheadMillis;
+        this.capacity = capacity;
+        this.wheel = new TimerWheel<>(lookaheadMillis, nowMillis);
+    }
+
+    boolean needsRefill(long nowMillis) {
+        return refillRequested || nowMillis >= horizonMillis;
+    }
+
+    /**
+     * Makes the next poll refill the buffer, for example when a task was scheduled before the current horizon.
+     */
+    void requestRefill() {
+        refillRequested = true;
+    }
+
+    long horizonMillis() {
+        return horizonMillis;
+    }
+
+    /**
+     * @return the maximum trigger time of the tasks to fetch when refilling.
+     */
+    long windowEndMillis(long nowMillis) {
+        return nowMillis + lookaheadMillis;
+    }
+
+    /**
+     * @return the maximum number of tasks to fetch from each sorted set when refilling.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Replaces the buffered tasks with the ones fetched from each sorted set of each shard, each map holding at most
+     * {@link #capacity()} tasks in the order of their trigger time.
+     */
+    void refill(long nowMillis, Map<Integer, List<Map<String, Long>>> tasksByShard) {
+        refillRequested = false;
+
+        long horizon = windowEndMillis(nowMillis);
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<Integer, List<Map<String, Long>>> shardTasks : tasksByShard.entrySet()) {
+            for (Map<String, Long> setTasks : shardTasks.getValue()) {
+                long lastTriggerTime = Long.MIN_VALUE;
+                for (Map.Entry<String, Long> task : setTasks.entrySet()) {
+                    entries.add(new Entry(task.getKey(), shardTasks.getKey(), task.getValue()));
+                    lastTriggerTime = task.getValue();
+                }
+                // a full sorted set may hold more tasks at or after its last fetched task.
+                if (setTasks.size() >= capacity) {
+                    horizon = Math.min(horizon, lastTriggerTime);
+                }
+            }
+        }
+
+        entries.sort(Comparator.comparingLong(entry -> entry.triggerTimeMillis));
+        if (entries.size() > capacity) {
+            entries = entries.subList(0, capacity);
+            horizon = Math.min(horizon, entries.get(capacity - 1).triggerTimeMillis);
+        }
+
+        wheel.clear(nowMillis);
+        for (Entry entry : entries) {
+            wheel.add(entry, entry.triggerTimeMillis);
+        }
+        horizonMillis = horizon;
+    }
+
+    /**
+     * Removes and returns up to <code>max</code> buffered tasks due at or before the given time.
+     */
+    List<Entry> expire(long nowMillis, int max) {
+        return wheel.expire(nowMillis, max);
+    }
+
+    /**
+     * @return the trigger time of the next buffered task, or {@link Long#MAX_VALUE} if the buffer is empty.
+     */
+    long nextTriggerTimeMillis() {
+        return wheel.nextTimeMillis();
+    }
+
+    static final class Entry {
+        final String taskId;
+        final int shard;
+        final long triggerTimeMillis;
+
+        private Entry(String taskId, int shard, long triggerTimeMillis) {
+            this.taskId = taskId;
+            this.shard = shard;
+            this.triggerTimeMillis = triggerTimeMillis;
+        }
+    }
+}
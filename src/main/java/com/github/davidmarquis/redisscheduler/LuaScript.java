@@ -0,0 +1,73 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A Lua script executed server-side by drivers. The script's SHA1 digest is computed once so that drivers can rely on
+ * <code>EVALSHA</code> and only send the full script body when Redis does not have it cached yet.
+ */
+public final class LuaScript {
+
+    private final String name;
+    private final String body;
+    private final String sha1;
+
+    private LuaScript(String name, String body) {
+        this.name = name;
+        this.body = body;
+        this.sha1 = sha1Of(body);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String body() {
+        return body;
+    }
+
+    public String sha1() {
+        return sha1;
+    }
+
+    static LuaScript load(String name) {
+        try (InputStream in = LuaScript.class.getResourceAsStream("scripts/" + name + ".lua")) {
+            if (in == null) {
+                throw new IllegalStateException(String.format("Lua script [%s] could not be found.", name));
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new LuaScript(name, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Lua script [%s] could not be read.", name), e);
+        }
+    }
+
+    private static String sha1Of(String body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(body.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts task payloads to and from the bytes stored in Redis.
+ *
+ * @param <T> the type of payloads.
+ */
+public interface PayloadCodec<T> {
+
+    byte[] encode(T payload);
+
+    T decode(byte[] bytes);
+
+    /**
+     * @return a codec for text payloads, encoded in UTF-8.
+     */
+    static PayloadCodec<String> utf8() {
+        return new PayloadCodec<String>() {
+            @Override
+            public byte[] encode(String payload) {
+                return payload.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Callback interface that will get executed when a previously-scheduled task is due for execution, along with the
+ * payload it was scheduled with. Payloads are only fetched when enabled on the scheduler
+ * (see {@link RedisTaskScheduler#setTaskPayloads(boolean)}).
+ */
+public interface PayloadTriggerListener extends TaskTriggerListener {
+
+    /**
+     * Called by the scheduler once a task is due for execution.
+     *
+     * @param taskId  the task ID that was originally submitted to the RedisTaskScheduler.
+     * @param payload the payload of the task, empty if the task was scheduled without payload.
+     */
+    void taskTriggered(String taskId, byte[] payload);
+
+    /**
+     * Called instead of {@link #taskTriggered(String, byte[])} when payloads are not enabled on the scheduler.
+     */
+    @Override
+    default void taskTriggered(String taskId) {
+        taskTriggered(taskId, new byte[0]);
+    }
+
+    /**
+     * @return a listener decoding payloads with the given codec before passing them to the given callback. Tasks
+     * scheduled without payload are passed a <code>null</code> payload.
+     */
+    static <T> PayloadTriggerListener decoding(PayloadCodec<T> codec, BiConsumer<String, T> listener) {
+        return (taskId, payload) -> listener.accept(taskId, payload.length == 0 ? null : codec.decode(payload));
+    }
+}
@@ -9,19 +9,31 @@ class PollingThread extends Thread {
 
     private TaskRunner runner;
     private int maxRetriesOnConnectionFailure;
-    private int pollingDelayMillis;
+    private SchedulerMetrics metrics;
+    private CircuitBreaker circuitBreaker;
 
-    private boolean stopRequested = false;
+    private volatile boolean stopRequested = false;
     private int numRetriesAttempted = 0;
 
-    PollingThread(TaskRunner runner, int maxRetriesOnConnectionFailure, int pollingDelayMillis) {
+    private final WakeUpSignal wakeUpSignal = new WakeUpSignal();
+
+    PollingThread(TaskRunner runner, int maxRetriesOnConnectionFailure, SchedulerMetrics metrics, CircuitBreaker circuitBreaker) {
         this.runner = runner;
         this.maxRetriesOnConnectionFailure = maxRetriesOnConnectionFailure;
-        this.pollingDelayMillis = pollingDelayMillis;
+        this.metrics = metrics;
+        this.circuitBreaker = circuitBreaker;
     }
 
     void requestStop() {
         stopRequested = true;
+        wakeUpSignal.stop();
+    }
+
+    /**
+     * Interrupts the wait between two polls, if any. If the thread is currently polling, it will poll again immediately.
+     */
+    void wakeUp() {
+        wakeUpSignal.wakeUp();
     }
 
     @Override
@@ -51,23 +63,44 @@ class PollingThread extends Thread {
 
     private void attemptTriggerNextTask() throws InterruptedException {
         try {
+            // the circuit may also have been opened by a failed write.
+            waitWhileCircuitOpen();
+            wakeUpSignal.clear();
+
             boolean taskTriggered = runner.triggerNextTaskIfFound();
+            circuitBreaker.recordSuccess();
 
             // if a task was triggered, we'll try again immediately. This will help to speed up the execution
             // process if a few tasks were due for execution.
             if (!taskTriggered) {
-                sleep(pollingDelayMillis);
+                wakeUpSignal.awaitWakeUp(runner.nextPollDelayMillis());
             }
 
             resetRetriesAttemptsCount();
         } catch (RedisConnectException e) {
+            circuitBreaker.recordFailure();
             incrementRetriesAttemptsCount();
-            log.warn(String.format("Connection failure during scheduler polling (attempt %s/%s)", numRetriesAttempted, maxRetriesOnConnectionFailure));
+            if (!isMaxRetriesAttemptsReached()) {
+                metrics.connectionRetried();
+            }
+            log.warn(String.format("Connection failure during scheduler polling (attempt %s%s), retrying in %sms",
+                                   numRetriesAttempted, maxRetriesOnConnectionFailure > 0 ? "/" + maxRetriesOnConnectionFailure : "",
+                                   circuitBreaker.remainingOpenMillis()));
+        }
+    }
+
+    /**
+     * Backs off while the circuit is open. Wakeup requests do not cut the backoff short, only stop requests do.
+     */
+    private void waitWhileCircuitOpen() throws InterruptedException {
+        long remainingMillis;
+        while (!stopRequested && (remainingMillis = circuitBreaker.remainingOpenMillis()) > 0) {
+            wakeUpSignal.awaitStop(remainingMillis);
         }
     }
 
     private boolean isMaxRetriesAttemptsReached() {
-        return numRetriesAttempted >= maxRetriesOnConnectionFailure;
+        return maxRetriesOnConnectionFailure > 0 && numRetriesAttempted >= maxRetriesOnConnectionFailure;
     }
 
     private void resetRetriesAttemptsCount() {
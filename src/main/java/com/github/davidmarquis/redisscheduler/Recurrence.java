@@ -0,0 +1,178 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How often a recurring task is triggered (see {@link TaskScheduler#scheduleRecurring(String, Recurrence)}).
+ * Recurrences are stored in Redis along with the task: the next occurrence of a task is scheduled atomically when the
+ * current one is claimed.
+ */
+public abstract class Recurrence {
+
+    private static final String FIXED_RATE = "rate";
+    private static final String CRON = "cron";
+    private static final String SEPARATOR = "|";
+    private static final int MAX_CACHED_CRON_EXPRESSIONS = 10000;
+
+    private static final Map<String, Recurrence> cronCache = new ConcurrentHashMap<>();
+
+    private Recurrence() {
+    }
+
+    /**
+     * @return a recurrence triggering a task at a fixed rate. Occurrences missed while no scheduler was running are
+     * skipped, except the last one.
+     */
+    public static Recurrence fixedRate(Duration period) {
+        if (period.toMillis() < 1) {
+            throw new IllegalArgumentException("Period must be at least 1 millisecond.");
+        }
+        return new FixedRate(period.toMillis());
+    }
+
+    /**
+     * @return a recurrence triggering a task at the times matching a standard 5-field cron expression
+     * (<code>minute hour day-of-month month day-of-week</code>), evaluated in UTC.
+     */
+    public static Recurrence cron(String expression) {
+        return cron(expression, ZoneOffset.UTC);
+    }
+
+    /**
+     * @return a recurrence triggering a task at the times matching a standard 5-field cron expression
+     * (<code>minute hour day-of-month month day-of-week</code>), evaluated in the given time zone. Occurrences
+     * missed while no scheduler was running are skipped, except the last one.
+     */
+    public static Recurrence cron(String expression, ZoneId zone) {
+        return cached(zone.getId() + SEPARATOR + expression);
+    }
+
+    /**
+     * @return the first occurrence strictly after the given time.
+     */
+    abstract long nextOccurrence(long afterMillis);
+
+    /**
+     * Whether the next occurrence is computed by the claim script itself. Otherwise, the scheduler computes it from
+     * the occurrence returned by the claim script.
+     */
+    abstract boolean computedByRedis();
+
+    /**
+     * @return the value stored in Redis for this recurrence: its kind, the occurrence following the current one, and
+     * its parameters.
+     */
+    String encode(long followingOccurrence) {
+        return kind() + SEPARATOR + followingOccurrence + SEPARATOR + parameters();
+    }
+
+    abstract String kind();
+
+    abstract String parameters();
+
+    /**
+     * Parses a value produced by {@link #encode(long)}. Cron expressions are parsed once and cached.
+     */
+    static Recurrence decode(String encoded) {
+        String[] parts = encoded.split("\\|", 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException(String.format("Malformed recurrence [%s].", encoded));
+        }
+
+        if (parts[0].equals(FIXED_RATE)) {
+            return new FixedRate(Long.parseLong(parts[2]));
+        }
+        if (parts[0].equals(CRON)) {
+            return cached(parts[2]);
+        }
+        throw new IllegalArgumentException(String.format("Unknown recurrence [%s].", encoded));
+    }
+
+    private static Recurrence cached(String zoneAndExpression) {
+        Recurrence recurrence = cronCache.get(zoneAndExpression);
+        if (recurrence == null) {
+            if (cronCache.size() >= MAX_CACHED_CRON_EXPRESSIONS) {
+                cronCache.clear();
+            }
+            recurrence = new Cron(zoneAndExpression);
+            cronCache.put(zoneAndExpression, recurrence);
+        }
+        return recurrence;
+    }
+
+    private static final class FixedRate extends Recurrence {
+        private final long periodMillis;
+
+        private FixedRate(long periodMillis) {
+            this.periodMillis = periodMillis;
+        }
+
+        @Override
+        long nextOccurrence(long afterMillis) {
+            return afterMillis + periodMillis;
+        }
+
+        @Override
+        boolean computedByRedis() {
+            return true;
+        }
+
+        @Override
+        String kind() {
+            return FIXED_RATE;
+        }
+
+        @Override
+        String parameters() {
+            return String.valueOf(periodMillis);
+        }
+
+        @Override
+        public String toString() {
+            return "every " + periodMillis + "ms";
+        }
+    }
+
+    private static final class Cron extends Recurrence {
+        private final String zoneAndExpression;
+        private final ZoneId zone;
+        private final CronExpression expression;
+
+        private Cron(String zoneAndExpression) {
+            int separator = zoneAndExpression.indexOf(SEPARATOR);
+            this.zoneAndExpression = zoneAndExpression;
+            this.zone = ZoneId.of(zoneAndExpression.substring(0, separator));
+            this.expression = CronExpression.parse(zoneAndExpression.substring(separator + 1));
+        }
+
+        @Override
+        long nextOccurrence(long afterMillis) {
+            return expression.next(Instant.ofEpochMilli(afterMillis).atZone(zone)).toInstant().toEpochMilli();
+        }
+
+        @Override
+        boolean computedByRedis() {
+            return false;
+        }
+
+        @Override
+        String kind() {
+            return CRON;
+        }
+
+        @Override
+        String parameters() {
+            return zoneAndExpression;
+        }
+
+        @Override
+        public String toString() {
+            return "cron [" + expression + "] in " + zone;
+        }
+    }
+}
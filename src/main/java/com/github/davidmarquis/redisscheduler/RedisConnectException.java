@@ -2,7 +2,13 @@ package com.github.davidmarquis.redisscheduler;
 
 
 public class RedisConnectException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public RedisConnectException(Throwable cause) {
         super(cause);
     }
+
+    public RedisConnectException(String message) {
+        super(message);
+    }
 }
@@ -1,9 +1,18 @@
 package com.github.davidmarquis.redisscheduler;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
 public interface RedisDriver {
 
     <T> T fetch(Function<Commands, T> block);
@@ -15,21 +24,313 @@ public interface RedisDriver {
         });
     }
 
+    /**
+     * Executes commands in a pipeline: commands are sent to Redis without waiting for their individual replies.
+     * Only commands that do not return a value may be used within a pipeline. Drivers that do not support pipelining
+     * execute commands one at a time.
+     */
+    default void executePipelined(Consumer<Commands> block) {
+        execute(block);
+    }
+
+    /**
+     * Subscribes to a Pub/Sub channel on a dedicated connection. Messages are delivered on a driver-managed thread.
+     * Drivers that do not support subscriptions cannot be used with wakeup notifications.
+     */
+    default Subscription subscribe(String channel, Consumer<String> onMessage) {
+        throw new UnsupportedOperationException(String.format("%s does not support Pub/Sub subscriptions.", getClass().getSimpleName()));
+    }
+
+    interface Subscription {
+        void unsubscribe();
+    }
+
+    /**
+     * Commands used by the scheduler. Drivers must at least implement {@link #addToSetWithScore}, {@link #removeFromSet},
+     * {@link #remove} and {@link #evalScript}: other commands default to these, and may be overridden with native
+     * commands.
+     */
     interface Commands {
         void addToSetWithScore(String key, String taskId, long score);
 
+        default void addAllToSetWithScores(String key, Map<String, Long> scoresByTaskId) {
+            scoresByTaskId.forEach((taskId, score) -> addToSetWithScore(key, taskId, score));
+        }
+
         void removeFromSet(String key, String taskId);
 
+        default void removeAllFromSet(String key, Collection<String> taskIds) {
+            taskIds.forEach(taskId -> removeFromSet(key, taskId));
+        }
+
+        default void removeAllFromHash(String key, Collection<String> fields) {
+            evalScript(Scripts.REMOVE_FROM_HASH, singletonList(key), new ArrayList<>(fields));
+        }
+
         void remove(String key);
 
-        void watch(String key);
+        /**
+         * @return the lowest score of the sorted set, if it has any member.
+         */
+        default Optional<Long> firstScore(String key) {
+            return firstScores(singletonList(key)).get(0);
+        }
+
+        /**
+         * @return the number of members of the sorted set.
+         */
+        default long count(String key) {
+            return Long.parseLong(evalScript(Scripts.COUNT, singletonList(key), emptyList()).get(0));
+        }
+
+        default void publish(String channel, String message) {
+            evalScript(Scripts.PUBLISH, emptyList(), asList(channel, message));
+        }
+
+        /**
+         * Executes a Lua script server-side. Scripts used by the scheduler always return a flat array of strings.
+         * Drivers written before the scheduler relied on scripts must implement this method.
+         */
+        default List<String> evalScript(LuaScript script, List<String> keys, List<String> args) {
+            throw new UnsupportedOperationException(String.format("%s does not support Lua scripts.", getClass().getSimpleName()));
+        }
+
+        /**
+         * @deprecated no longer used by the scheduler, which claims due tasks with a Lua script instead of an optimistic
+         * transaction. Will be removed in a future version.
+         */
+        @Deprecated
+        default void watch(String key) {
+            throw new UnsupportedOperationException("WATCH is no longer used by the scheduler.");
+        }
+
+        /**
+         * @deprecated see {@link #watch(String)}.
+         */
+        @Deprecated
+        default void unwatch() {
+            throw new UnsupportedOperationException("UNWATCH is no longer used by the scheduler.");
+        }
+
+        /**
+         * @deprecated see {@link #watch(String)}.
+         */
+        @Deprecated
+        default void multi() {
+            throw new UnsupportedOperationException("MULTI is no longer used by the scheduler.");
+        }
+
+        /**
+         * @deprecated see {@link #watch(String)}.
+         */
+        @Deprecated
+        default boolean exec() {
+            throw new UnsupportedOperationException("EXEC is no longer used by the scheduler.");
+        }
+
+        /**
+         * @deprecated no longer used by the scheduler: use {@link #peekByScore(String, long, int)} instead. Will be
+         * removed in a future version.
+         */
+        @Deprecated
+        default Optional<String> firstByScore(String key, long minScore, long maxScore) {
+            throw new UnsupportedOperationException("firstByScore is no longer used by the scheduler.");
+        }
+
+        /**
+         * Atomically claims up to <code>limit</code> members due at or before <code>now</code> from the sorted set of a
+         * shard, in ascending score order and in a single round trip. Claimed one-off members are removed, or leased
+         * until <code>leaseExpiry</code> if not zero. Claimed recurring members are scheduled at their next occurrence.
+         * Members over the limits of their type are skipped.
+         *
+         * @param shardKeys the keys of the shard, as returned by {@link SchedulerIdentity#claimKeys(int)}.
+         */
+        default List<ClaimedTask> claimDue(List<String> shardKeys, long now, int limit, long leaseExpiry, boolean withPayloads,
+                                           TaskLimits limits) {
+            List<String> args = new ArrayList<>(asList(String.valueOf(now), String.valueOf(limit), String.valueOf(leaseExpiry),
+                                                       withPayloads ? "1" : "0"));
+            args.addAll(limits.claimArgs(now));
+            return ClaimedTask.fromReply(evalScript(Scripts.CLAIM, shardKeys, args), withPayloads);
+        }
+
+        /**
+         * Same as {@link #claimDue(List, long, int, long, boolean, TaskLimits)}, but only claims the given members,
+         * among those still due.
+         */
+        default List<ClaimedTask> claimMembers(List<String> shardKeys, long now, long leaseExpiry, boolean withPayloads,
+                                               TaskLimits limits, Collection<String> members) {
+            List<String> args = new ArrayList<>(asList(String.valueOf(now), String.valueOf(members.size()), String.valueOf(leaseExpiry),
+                                                       withPayloads ? "1" : "0"));
+            args.addAll(limits.claimArgs(now));
+            args.addAll(members);
+            return ClaimedTask.fromReply(evalScript(Scripts.CLAIM, shardKeys, args), withPayloads);
+        }
+
+        /**
+         * Stops counting a claimed member as in flight towards the limit of its type.
+         */
+        default void releaseInFlight(String limitKey, String inFlightByTypeKey, String taskId, String type) {
+            evalScript(Scripts.RELEASE_IN_FLIGHT, asList(limitKey, inFlightByTypeKey), asList(taskId, type));
+        }
+
+        /**
+         * Atomically acknowledges a failed member, and schedules it again after a backoff, or dead-letters it once it
+         * failed all its attempts. Members scheduled again meanwhile are left as is.
+         *
+         * @param retryKeys the keys of the shard, as returned by {@link SchedulerIdentity#retryKeys(String)}.
+         * @param payload   the payload to store again with the member, or <code>null</code>.
+         * @return the time of the retry, <code>dead</code> or <code>scheduled</code>.
+         */
+        default String retry(List<String> retryKeys, String taskId, long now, RetryPolicy policy, byte[] payload) {
+            List<String> args = new ArrayList<>(asList(taskId, String.valueOf(now), String.valueOf(policy.maxAttempts()),
+                                                       String.valueOf(policy.initialDelayMillis()),
+                                                       String.valueOf(policy.maxDelayMillis()),
+                                                       String.valueOf(policy.jitterFactor())));
+            if (payload != null) {
+                args.add(ClaimedTask.encodePayload(payload));
+            }
+            return evalScript(Scripts.RETRY, retryKeys, args).get(0);
+        }
+
+        /**
+         * Atomically schedules dead-lettered members again for immediate execution: the given ones, or up to
+         * <code>limit</code> of the oldest ones when no member is given. Members scheduled again meanwhile keep their
+         * new score.
+         *
+         * @param replayKeys the keys of a shard, as returned by {@link SchedulerIdentity#replayKeys(int)}.
+         * @return the replayed members.
+         */
+        default List<String> replayDeadLetters(List<String> replayKeys, long now, int limit, Collection<String> members) {
+            List<String> args = new ArrayList<>(members.size() + 2);
+            args.addAll(asList(String.valueOf(now), String.valueOf(limit)));
+            args.addAll(members);
+            return evalScript(Scripts.REPLAY_DEAD_LETTERS, replayKeys, args);
+        }
+
+        /**
+         * @return the lowest score of each sorted set, if it has any member, in the order of the keys. All sorted sets
+         * are probed in a single round trip, so they must all live on the same Redis node.
+         */
+        default List<Optional<Long>> firstScores(List<String> keys) {
+            List<Optional<Long>> scores = new ArrayList<>(keys.size());
+            for (String score : evalScript(Scripts.FIRST_SCORES, keys, emptyList())) {
+                scores.add(score.isEmpty() ? Optional.empty() : Optional.of((long) Double.parseDouble(score)));
+            }
+            return scores;
+        }
+
+        /**
+         * @return up to <code>limit</code> members scored at or before <code>maxScore</code> with their score, in
+         * ascending score order. Members are left in the sorted set.
+         */
+        default Map<String, Long> peekByScore(String key, long maxScore, int limit) {
+            List<String> reply = evalScript(Scripts.PEEK_BY_SCORE, singletonList(key),
+                                            asList(String.valueOf(maxScore), String.valueOf(limit)));
+            Map<String, Long> scoresByMember = new LinkedHashMap<>();
+            for (int i = 0; i + 1 < reply.size(); i += 2) {
+                scoresByMember.put(reply.get(i), (long) Double.parseDouble(reply.get(i + 1)));
+            }
+            return scoresByMember;
+        }
+
+        /**
+         * Atomically adds a member to the sorted set and its payload to the payload hash.
+         */
+        default void addToSetWithPayload(String key, String payloadKey, String taskId, long score, byte[] payload) {
+            evalScript(Scripts.SCHEDULE_WITH_PAYLOAD, asList(key, payloadKey),
+                       asList(String.valueOf(score), taskId, ClaimedTask.encodePayload(payload)));
+        }
+
+        /**
+         * Atomically adds the first occurrence of a recurring member to the sorted set, and its recurrence to the
+         * recurrence hash.
+         */
+        default void addRecurringToSet(String key, String recurrenceKey, String taskId, long firstOccurrence, String recurrence) {
+            evalScript(Scripts.SCHEDULE_RECURRING, asList(key, recurrenceKey),
+                       asList(String.valueOf(firstOccurrence), taskId, recurrence));
+        }
+
+        /**
+         * Stores the next occurrence of claimed cron recurrences, unless they changed since they were claimed.
+         */
+        default void advanceRecurrences(String recurrenceKey, List<ClaimedTask> claimedTasks, List<Long> nextOccurrences) {
+            List<String> args = new ArrayList<>(claimedTasks.size() * 3);
+            for (int i = 0; i < claimedTasks.size(); i++) {
+                args.add(claimedTasks.get(i).taskId());
+                args.add(claimedTasks.get(i).storedRecurrence());
+                args.add(String.valueOf(nextOccurrences.get(i)));
+            }
+            evalScript(Scripts.ADVANCE_RECURRENCES, singletonList(recurrenceKey), args);
+        }
+
+        /**
+         * Atomically registers a member until <code>expiry</code>, removes the members which expired before
+         * <code>now</code>, and returns the remaining members.
+         */
+        default List<String> heartbeat(String key, String member, long now, long expiry) {
+            return evalScript(Scripts.HEARTBEAT, singletonList(key),
+                              asList(String.valueOf(now), String.valueOf(expiry), member));
+        }
 
-        void unwatch();
+        /**
+         * Atomically schedules members at the default priority, in the sorted set of their shard when their cold bucket
+         * starts at or before <code>coldAfter</code>, or in their cold bucket otherwise. Members are removed from other
+         * priorities, and from their previous cold bucket once it is promoted.
+         *
+         * @param tieredKeys the keys of the shard, as returned by {@link SchedulerIdentity#tieredKeys(String)}.
+         */
+        default void scheduleTiered(List<String> tieredKeys, String bucketKeyPrefix, long bucketMillis, long coldAfter,
+                                    Map<String, Long> scoresByTaskId) {
+            List<String> bucketKeys = new ArrayList<>();
+            List<String> buckets = new ArrayList<>();
+            List<String> members = new ArrayList<>(scoresByTaskId.size() * 3);
+            scoresByTaskId.forEach((taskId, score) -> {
+                long bucket = Math.floorDiv(score, bucketMillis);
+                String coldBucket = bucket * bucketMillis > coldAfter ? String.valueOf(bucket) : "";
+                if (!coldBucket.isEmpty() && !buckets.contains(coldBucket)) {
+                    buckets.add(coldBucket);
+                    bucketKeys.add(bucketKeyPrefix + coldBucket);
+                }
+                members.addAll(asList(String.valueOf(score), taskId, coldBucket));
+            });
 
-        void multi();
+            List<String> keys = new ArrayList<>(tieredKeys);
+            keys.addAll(bucketKeys);
+            List<String> args = new ArrayList<>(asList(String.valueOf(tieredKeys.size() - 3), String.valueOf(buckets.size()),
+                                                       String.valueOf(bucketMillis)));
+            args.addAll(buckets);
+            args.addAll(members);
+            evalScript(Scripts.SCHEDULE_TIERED, keys, args);
+        }
 
-        boolean exec();
+        /**
+         * Atomically moves up to <code>limit</code> members of the given cold buckets to the sorted set of their
+         * shard, in the given order. Members since scheduled elsewhere are dropped from the buckets instead.
+         *
+         * @return the number of moved members.
+         */
+        default int promoteColdBuckets(String key, String coldKey, String bucketIndexKey, String bucketKeyPrefix,
+                                       Collection<String> buckets, int limit) {
+            List<String> keys = new ArrayList<>(asList(key, coldKey, bucketIndexKey));
+            List<String> args = new ArrayList<>(buckets.size() + 1);
+            args.add(String.valueOf(limit));
+            for (String bucket : buckets) {
+                keys.add(bucketKeyPrefix + bucket);
+                args.add(bucket);
+            }
+            List<String> reply = evalScript(Scripts.PROMOTE_BUCKETS, keys, args);
+            return Integer.parseInt(reply.get(0));
+        }
 
-        Optional<String> firstByScore(String key, long minScore, long maxScore);
+        /**
+         * Atomically moves up to <code>limit</code> members whose lease expired back to the sorted set, due now, unless
+         * they were scheduled again meanwhile.
+         *
+         * @param requeueKeys the keys of a shard, in the order expected by the requeue script.
+         * @return the moved members.
+         */
+        default List<String> requeueExpired(List<String> requeueKeys, long now, int limit) {
+            return evalScript(Scripts.REQUEUE_EXPIRED, requeueKeys, asList(String.valueOf(now), String.valueOf(limit)));
+        }
     }
 }
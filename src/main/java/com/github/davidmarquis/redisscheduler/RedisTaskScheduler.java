@@ -7,23 +7,125 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static com.github.davidmarquis.redisscheduler.SchedulerIdentity.ATTEMPT_KEY_SUFFIX;
+import static com.github.davidmarquis.redisscheduler.SchedulerIdentity.BUCKET_INDEX_KEY_SUFFIX;
+import static com.github.davidmarquis.redisscheduler.SchedulerIdentity.BUCKET_KEY_PREFIX_SUFFIX;
+import static com.github.davidmarquis.redisscheduler.SchedulerIdentity.COLD_KEY_SUFFIX;
+import static com.github.davidmarquis.redisscheduler.SchedulerIdentity.DEAD_LETTER_KEY_SUFFIX;
+import static com.github.davidmarquis.redisscheduler.SchedulerIdentity.IN_FLIGHT_BY_TYPE_KEY_SUFFIX;
+import static com.github.davidmarquis.redisscheduler.SchedulerIdentity.IN_FLIGHT_KEY_SUFFIX;
+import static com.github.davidmarquis.redisscheduler.SchedulerIdentity.LIMIT_KEY_SUFFIX;
+import static com.github.davidmarquis.redisscheduler.SchedulerIdentity.PAYLOAD_KEY_SUFFIX;
+import static com.github.davidmarquis.redisscheduler.SchedulerIdentity.RECURRENCE_KEY_SUFFIX;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 
 public class RedisTaskScheduler implements TaskScheduler, TaskRunner {
 
     private static final Logger log = LoggerFactory.getLogger(TaskScheduler.class);
 
     private static final String DEFAULT_SCHEDULER_NAME = "scheduler";
+    private static final int LATENESS_WINDOW_MILLIS = 10000;
+    private static final int MAX_LOOKAHEAD_MILLIS = 60000;
+    private static final int DEFAULT_PRIORITY = 0;
+    private static final int COLD_PROMOTION_INTERVAL_MILLIS = 1000;
+    private static final int COLD_BUCKETS_PER_PROMOTION = 16;
+    private static final Instant COALESCED_UNSCHEDULE = Instant.MIN;
 
     private Clock clock = Clock.systemDefaultZone();
     private RedisDriver driver;
     private TaskTriggerListener listener;
 
     private SchedulerIdentity identity = SchedulerIdentity.of(DEFAULT_SCHEDULER_NAME);
+    private int nextShard = ThreadLocalRandom.current().nextInt(1024);
+    private boolean partitionedShards = false;
+    private int heartbeatIntervalMillis = 1000;
+    private ShardOwnership ownership;
 
     private PollingThread pollingThread;
-    private int pollingDelayMillis = 10000;
-    private int maxRetriesOnConnectionFailure = 1;
+    private SchedulerEngine engine;
+    private int pollingDelayMillis = DEFAULT_POLLING_DELAY_MILLIS;
+    private int minPollingDelayMillis = 0;
+    private int pollingJitterMillis = 0;
+    private boolean adaptivePolling = false;
+    private int maxRetriesOnConnectionFailure = 0;
+    private int connectionBackoffMillis = 100;
+    private int maxConnectionBackoffMillis = 30000;
+    private CircuitBreaker circuitBreaker = new CircuitBreaker(connectionBackoffMillis, maxConnectionBackoffMillis);
+    private int writeBufferSize = 0;
+    private final Map<String, Instant> bufferedWrites = new LinkedHashMap<>();
+    private int writeCoalescingMillis = 0;
+    private int maxCoalescedWrites = 10000;
+    private final Map<String, Instant> coalescedWrites = new LinkedHashMap<>();
+    private ScheduledExecutorService coalescingFlusher;
+    private int claimBatchSize = 1;
+    private int bulkChunkSize = 1000;
+
+    private TaskDispatcher dispatcher;
+    private Executor taskExecutor = Runnable::run;
+    private ExecutorService ownedTaskExecutor;
+    private int maxPendingTasks = 1000;
+
+    private boolean wakeupNotifications = false;
+    private RedisDriver.Subscription wakeupSubscription;
+    private volatile long nextPollTimeMillis = Long.MAX_VALUE;
+
+    private SchedulerMetrics metrics = SchedulerMetrics.NONE;
+    private int backlogSampleIntervalMillis = 10000;
+    private long nextBacklogSampleMillis = 0;
+
+    private int latenessTargetMillis = 0;
+    private LatenessController latenessController;
+
+    private boolean taskPayloads = false;
+    private TaskIdCodec taskIdCodec = TaskIdCodec.identity();
+
+    private int lookaheadMillis = 0;
+    private int lookaheadBufferSize = 1000;
+    private LookaheadBuffer lookaheadBuffer;
+
+    private final Map<String, TaskLimit> taskLimits = new LinkedHashMap<>();
+    private String taskTypeSeparator = ":";
+    private int inFlightTimeoutMillis = 300000;
+    private TaskLimits limits = TaskLimits.NONE;
+    /**
+     * Time of the last poll which claimed no task while tasks have limits: tasks due by then are held back by their
+     * limits, and do not call for an earlier poll. Reset once a task due by then is scheduled, or notified.
+     */
+    private long heldBackMillis = Long.MIN_VALUE;
+    private int heldBackResets = 0;
+    private final Object heldBackLock = new Object();
+
+    private RetryPolicy retryPolicy;
+
+    private int leaseDurationMillis = 0;
+    private int leaseReapIntervalMillis = 1000;
+    private int leaseReapBatchSize = 1000;
+    private long nextLeaseReapMillis = 0;
+
+    private int coldBucketMillis = 0;
+    private long nextColdPromotionMillis = 0;
 
     public RedisTaskScheduler(RedisDriver driver, TaskTriggerListener listener) {
         this.driver = driver;
@@ -38,26 +140,618 @@ public class RedisTaskScheduler implements TaskScheduler, TaskRunner {
         if (triggerTime == null) {
             throw new IllegalArgumentException("A trigger time must be provided.");
         }
+        String member = taskIdCodec.encode(taskId);
+        if (canCoalesce(triggerTime)) {
+            discardBufferedWrite(member);
+            coalesceWrite(member, triggerTime);
+            return;
+        }
+        discardCoalescedWrite(member);
+        if (writeBufferSize == 0) {
+            scheduleInRedis(member, triggerTime);
+            return;
+        }
+
+        if (circuitBreaker.state() == CircuitState.OPEN) {
+            bufferWrite(member, triggerTime, null);
+            return;
+        }
+        try {
+            scheduleInRedis(member, triggerTime);
+            circuitBreaker.recordSuccess();
+        } catch (RedisConnectException e) {
+            circuitBreaker.recordFailure();
+            bufferWrite(member, triggerTime, e);
+            return;
+        }
+        // an older write of the same task must not be flushed over this one.
+        discardBufferedWrite(member);
+    }
+
+    /**
+     * Task IDs passed to this method and the following ones are already encoded with the task ID codec.
+     */
+    private void scheduleInRedis(String taskId, Instant triggerTime) {
+        scheduleInRedis(taskId, triggerTime, DEFAULT_PRIORITY, null);
+    }
+
+    /**
+     * Keeps a task to schedule locally until Redis is reachable again, replacing any write of the same task.
+     */
+    private void bufferWrite(String taskId, Instant triggerTime, RedisConnectException failure) {
+        synchronized (bufferedWrites) {
+            if (bufferedWrites.size() >= writeBufferSize && !bufferedWrites.containsKey(taskId)) {
+                if (failure != null) {
+                    throw failure;
+                }
+                throw new RedisConnectException(String.format("Redis is unreachable and %s writes are already buffered.",
+                                                              writeBufferSize));
+            }
+            bufferedWrites.put(taskId, triggerTime);
+        }
+    }
+
+    private void discardBufferedWrite(String taskId) {
+        if (writeBufferSize > 0) {
+            synchronized (bufferedWrites) {
+                bufferedWrites.remove(taskId);
+            }
+        }
+    }
+
+    /**
+     * Schedules the buffered tasks with as few round trips as possible. Should this fail, tasks are buffered again,
+     * unless they were written again meanwhile.
+     */
+    private void flushBufferedWrites() {
+        Map<String, Instant> writes;
+        synchronized (bufferedWrites) {
+            if (bufferedWrites.isEmpty()) {
+                return;
+            }
+            writes = new LinkedHashMap<>(bufferedWrites);
+            bufferedWrites.clear();
+        }
+
+        try {
+            scheduleAllInRedis(writes);
+        } catch (RuntimeException e) {
+            synchronized (bufferedWrites) {
+                writes.forEach(bufferedWrites::putIfAbsent);
+            }
+            throw e;
+        }
+        log.info(String.format("[%s] Scheduled %s tasks buffered while Redis was unreachable", identity.name(), writes.size()));
+    }
+
+    /**
+     * @return whether a write can be delayed by the coalescing window, without delaying the trigger of the task.
+     */
+    private boolean canCoalesce(Instant triggerTime) {
+        return coalescing() && triggerTime.toEpochMilli() > clock.millis() + writeCoalescingMillis;
+    }
+
+    private boolean coalescing() {
+        return coalescingFlusher != null && !coalescingFlusher.isShutdown();
+    }
+
+    /**
+     * Keeps the last write of a task until the end of the coalescing window, replacing any previous write of the same
+     * task. Writes are flushed right away once the maximum number of coalesced writes is reached.
+     */
+    private void coalesceWrite(String taskId, Instant triggerTime) {
+        boolean full;
+        synchronized (coalescedWrites) {
+            if (coalescedWrites.isEmpty()) {
+                coalescingFlusher.schedule(this::flushCoalescedWritesOrRetry, writeCoalescingMillis, TimeUnit.MILLISECONDS);
+            }
+            coalescedWrites.put(taskId, triggerTime);
+            full = coalescedWrites.size() >= maxCoalescedWrites;
+        }
+        if (full) {
+            flushCoalescedWrites();
+        }
+    }
+
+    /**
+     * Forgets the coalesced write of a task, before writing it directly to Redis.
+     */
+    private void discardCoalescedWrite(String taskId) {
+        if (writeCoalescingMillis > 0) {
+            synchronized (coalescedWrites) {
+                coalescedWrites.remove(taskId);
+            }
+        }
+    }
+
+    /**
+     * Writes all coalesced writes in a single pipeline. Writes are flushed while holding the lock of coalesced writes,
+     * so that a task written directly after discarding its coalesced write is never overwritten by an older flush.
+     * Should this fail, writes are coalesced again, unless they were replaced meanwhile.
+     */
+    private void flushCoalescedWrites() {
+        synchronized (coalescedWrites) {
+            if (coalescedWrites.isEmpty()) {
+                return;
+            }
+
+            Map<String, Instant> schedules = new LinkedHashMap<>();
+            List<String> unschedules = new ArrayList<>();
+            coalescedWrites.forEach((taskId, triggerTime) -> {
+                if (triggerTime == COALESCED_UNSCHEDULE) {
+                    unschedules.add(taskId);
+                } else {
+                    schedules.put(taskId, triggerTime);
+                }
+            });
+
+            long coldAfter = clock.millis() + coldBucketMillis;
+            executeWrites(commands -> {
+                if (!schedules.isEmpty()) {
+                    addAll(commands, schedules, coldAfter);
+                }
+                if (!unschedules.isEmpty()) {
+                    removeAll(commands, unschedules);
+                }
+            });
+            coalescedWrites.clear();
+        }
+    }
+
+    private void flushCoalescedWritesOrRetry() {
+        try {
+            flushCoalescedWrites();
+        } catch (RuntimeException e) {
+            log.warn(String.format("[%s] Could not write coalesced writes, retrying in %sms", identity.name(),
+                                   writeCoalescingMillis), e);
+            coalescingFlusher.schedule(this::flushCoalescedWritesOrRetry, writeCoalescingMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void scheduleAt(String taskId, Instant triggerTime, int priority) {
+        if (triggerTime == null) {
+            throw new IllegalArgumentException("A trigger time must be provided.");
+        }
+        if (priority < 0 || priority >= identity.priorityLevels()) {
+            throw new IllegalArgumentException(String.format("Priority must be between 0 and %s.", identity.priorityLevels() - 1));
+        }
+        String member = taskIdCodec.encode(taskId);
+        discardCoalescedWrite(member);
+        scheduleInRedis(member, triggerTime, priority, null);
+    }
+
+    /**
+     * Writes a task scheduled once, whichever way it was scheduled. Tasks of the default priority without a payload go
+     * to their cold bucket when cold buckets are enabled. Other tasks go to the sorted set of their priority, along with
+     * their payload if any, and are removed from other priorities and from cold buckets in the same write.
+     */
+    private void scheduleInRedis(String taskId, Instant triggerTime, int priority, byte[] payload) {
+        if (coldBucketMillis > 0 && priority == DEFAULT_PRIORITY && payload == null) {
+            scheduleAllInRedis(Collections.singletonMap(taskId, triggerTime));
+            return;
+        }
+
+        driver.execute(commands -> {
+            removeFromOtherPriorities(commands, taskId, priority);
+            removeRecurrence(commands, taskId);
+            if (payload != null) {
+                commands.addToSetWithPayload(identity.keyFor(taskId), identity.keyFor(PAYLOAD_KEY_SUFFIX, taskId), taskId,
+                                             triggerTime.toEpochMilli(), payload);
+            } else {
+                commands.addToSetWithScore(identity.keyFor(taskId, priority), taskId, triggerTime.toEpochMilli());
+            }
+
+            if (wakeupNotifications) {
+                commands.publish(identity.wakeupChannel(), String.valueOf(triggerTime.toEpochMilli()));
+            }
+        });
+        scheduledLocally(triggerTime.toEpochMilli());
+    }
+
+    /**
+     * Removes a task from the sorted sets of other priorities than the one it is being scheduled at, so that a task
+     * rescheduled at another priority is not held twice. Removals are sent first, so that the task is never triggered
+     * twice.
+     */
+    private void removeFromOtherPriorities(RedisDriver.Commands commands, String taskId, int priority) {
+        for (int otherPriority = 0; otherPriority < identity.priorityLevels(); otherPriority++) {
+            if (otherPriority != priority) {
+                commands.removeFromSet(identity.keyFor(taskId, otherPriority), taskId);
+            }
+        }
+        if (coldBucketMillis > 0) {
+            commands.removeAllFromHash(identity.keyFor(COLD_KEY_SUFFIX, taskId), singletonList(taskId));
+        }
+    }
+
+    /**
+     * Stops a recurring task from recurring when it gets scheduled once, in the same write as its scheduling.
+     */
+    private void removeRecurrence(RedisDriver.Commands commands, String taskId) {
+        commands.removeAllFromHash(identity.keyFor(RECURRENCE_KEY_SUFFIX, taskId), singletonList(taskId));
+    }
+
+    @Override
+    public void scheduleAt(String taskId, Instant triggerTime, byte[] payload) {
+        if (triggerTime == null) {
+            throw new IllegalArgumentException("A trigger time must be provided.");
+        }
+        if (!taskPayloads) {
+            throw new IllegalStateException("Task payloads must be enabled to schedule tasks with a payload.");
+        }
+
+        String member = taskIdCodec.encode(taskId);
+        discardCoalescedWrite(member);
+        scheduleInRedis(member, triggerTime, DEFAULT_PRIORITY, payload);
+    }
+
+    @Override
+    public void scheduleRecurring(String taskId, Recurrence recurrence) {
+        if (recurrence == null) {
+            throw new IllegalArgumentException("A recurrence must be provided.");
+        }
+
+        long firstOccurrence = recurrence.nextOccurrence(clock.millis());
+        long followingOccurrence = recurrence.computedByRedis() ? 0 : recurrence.nextOccurrence(firstOccurrence);
+
+        String member = taskIdCodec.encode(taskId);
+        discardCoalescedWrite(member);
+        driver.execute(commands -> {
+            removeFromOtherPriorities(commands, member, DEFAULT_PRIORITY);
+            commands.addRecurringToSet(identity.keyFor(member), identity.keyFor(RECURRENCE_KEY_SUFFIX, member), member,
+                                       firstOccurrence, recurrence.encode(followingOccurrence));
+
+            if (wakeupNotifications) {
+                commands.publish(identity.wakeupChannel(), String.valueOf(firstOccurrence));
+            }
+        });
+    }
+
+    /**
+     * @return whether a task can be scheduled or unscheduled without blocking. Only drivers implementing
+     * {@link AsyncRedisDriver} can, as long as the task is only written to the sorted set of its shard and to its
+     * recurrence: other priorities, cold buckets, payloads and coalesced writes go through the synchronous writes.
+     */
+    private boolean writesAsync() {
+        return driver instanceof AsyncRedisDriver && identity.priorityLevels() == 1 && coldBucketMillis == 0
+               && !taskPayloads && !coalescing();
+    }
+
+    /**
+     * Only drivers implementing {@link AsyncRedisDriver} schedule tasks without blocking. With other drivers, the task
+     * is scheduled synchronously and an already completed stage is returned.
+     */
+    @Override
+    public CompletionStage<Void> scheduleAtAsync(String taskId, Instant triggerTime) {
+        if (triggerTime == null) {
+            throw new IllegalArgumentException("A trigger time must be provided.");
+        }
+
+        if (!writesAsync()) {
+            return completedStage(() -> scheduleAt(taskId, triggerTime));
+        }
+
+        String member = taskIdCodec.encode(taskId);
+        discardCoalescedWrite(member);
+        return ((AsyncRedisDriver) driver).fetchAsync(commands -> {
+            CompletableFuture<Void> recurrenceRemoved = commands.removeFromHash(identity.keyFor(RECURRENCE_KEY_SUFFIX, member),
+                                                                                member)
+                                                                .toCompletableFuture();
+            CompletableFuture<Void> added = commands.addToSetWithScore(identity.keyFor(member), member, triggerTime.toEpochMilli())
+                                                    .toCompletableFuture();
+            if (!wakeupNotifications) {
+                return CompletableFuture.allOf(recurrenceRemoved, added);
+            }
+
+            CompletableFuture<Void> published = commands.publish(identity.wakeupChannel(), String.valueOf(triggerTime.toEpochMilli()))
+                                                        .toCompletableFuture();
+            return CompletableFuture.allOf(recurrenceRemoved, added, published);
+        }).thenRun(() -> scheduledLocally(triggerTime.toEpochMilli()));
+    }
+
+    @Override
+    public void scheduleAll(Map<String, Instant> triggerTimes) {
+        if (triggerTimes.containsValue(null)) {
+            throw new IllegalArgumentException("A trigger time must be provided for each task.");
+        }
+        if (triggerTimes.isEmpty()) {
+            return;
+        }
+
+        Map<String, Instant> triggerTimesByMember = new LinkedHashMap<>();
+        triggerTimes.forEach((taskId, triggerTime) -> triggerTimesByMember.put(taskIdCodec.encode(taskId), triggerTime));
+        triggerTimesByMember.keySet().forEach(this::discardCoalescedWrite);
+        scheduleAllInRedis(triggerTimesByMember);
+    }
+
+    private void scheduleAllInRedis(Map<String, Instant> triggerTimes) {
+        long coldAfter = clock.millis() + coldBucketMillis;
+        executeWrites(commands -> addAll(commands, triggerTimes, coldAfter));
+        scheduledLocally(triggerTimes.values().stream().mapToLong(Instant::toEpochMilli).min().getAsLong());
+    }
+
+    /**
+     * Adds tasks at the default priority, in chunks of tasks of a single shard.
+     */
+    private void addAll(RedisDriver.Commands commands, Map<String, Instant> triggerTimes, long coldAfter) {
+        Map<String, Map<String, Long>> chunksByKey = new HashMap<>();
+        for (Map.Entry<String, Instant> entry : triggerTimes.entrySet()) {
+            String key = identity.keyFor(entry.getKey());
+            Map<String, Long> chunk = chunksByKey.computeIfAbsent(key, k -> new LinkedHashMap<>());
+            chunk.put(entry.getKey(), entry.getValue().toEpochMilli());
+
+            if (chunk.size() == bulkChunkSize) {
+                addChunk(commands, key, chunk, coldAfter);
+                chunksByKey.remove(key);
+            }
+        }
+        chunksByKey.forEach((key, chunk) -> addChunk(commands, key, chunk, coldAfter));
+
+        if (wakeupNotifications) {
+            long earliestTriggerTime = triggerTimes.values().stream().mapToLong(Instant::toEpochMilli).min().getAsLong();
+            if (!isCold(earliestTriggerTime, coldAfter)) {
+                commands.publish(identity.wakeupChannel(), String.valueOf(earliestTriggerTime));
+            }
+        }
+    }
 
-        driver.execute(commands -> commands.addToSetWithScore(identity.key(), taskId, triggerTime.toEpochMilli()));
+    /**
+     * Adds tasks of a single shard at the default priority, removing them from other priorities and forgetting their
+     * recurrences first. With cold buckets, tasks whose bucket starts after <code>coldAfter</code> are added to their
+     * bucket instead.
+     */
+    private void addChunk(RedisDriver.Commands commands, String key, Map<String, Long> scoresByTaskId, long coldAfter) {
+        String anyTaskId = scoresByTaskId.keySet().iterator().next();
+        commands.removeAllFromHash(identity.keyFor(RECURRENCE_KEY_SUFFIX, anyTaskId), scoresByTaskId.keySet());
+        if (coldBucketMillis > 0) {
+            commands.scheduleTiered(identity.tieredKeys(anyTaskId), identity.keyFor(BUCKET_KEY_PREFIX_SUFFIX, anyTaskId),
+                                    coldBucketMillis, coldAfter, scoresByTaskId);
+            return;
+        }
+        for (int priority = 1; priority < identity.priorityLevels(); priority++) {
+            commands.removeAllFromSet(identity.keyFor(anyTaskId, priority), scoresByTaskId.keySet());
+        }
+        commands.addAllToSetWithScores(key, scoresByTaskId);
     }
 
     @Override
     public void unschedule(String taskId) {
-        driver.execute(commands -> commands.removeFromSet(identity.key(), taskId));
+        String member = taskIdCodec.encode(taskId);
+        discardBufferedWrite(member);
+        if (coalescing()) {
+            coalesceWrite(member, COALESCED_UNSCHEDULE);
+            return;
+        }
+        executeWrites(commands -> removeChunk(commands, identity.keyFor(member), singletonList(member)));
+    }
+
+    /**
+     * Only drivers implementing {@link AsyncRedisDriver} unschedule tasks without blocking. With other drivers, the
+     * task is unscheduled synchronously and an already completed stage is returned.
+     */
+    @Override
+    public CompletionStage<Void> unscheduleAsync(String taskId) {
+        if (!writesAsync()) {
+            return completedStage(() -> unschedule(taskId));
+        }
+
+        String member = taskIdCodec.encode(taskId);
+        return ((AsyncRedisDriver) driver).fetchAsync(commands -> {
+            CompletableFuture<Void> removed = commands.removeFromSet(identity.keyFor(member), member).toCompletableFuture();
+            CompletableFuture<Void> recurrenceRemoved = commands.removeFromHash(identity.keyFor(RECURRENCE_KEY_SUFFIX, member),
+                                                                                member)
+                                                                .toCompletableFuture();
+            return CompletableFuture.allOf(removed, recurrenceRemoved);
+        });
+    }
+
+    @Override
+    public void unscheduleAll(Collection<String> taskIds) {
+        if (taskIds.isEmpty()) {
+            return;
+        }
+
+        List<String> members = taskIds.stream().map(taskIdCodec::encode).collect(toList());
+        members.forEach(this::discardCoalescedWrite);
+        executeWrites(commands -> removeAll(commands, members));
+    }
+
+    /**
+     * Removes tasks in chunks of tasks of a single shard.
+     */
+    private void removeAll(RedisDriver.Commands commands, Collection<String> taskIds) {
+        Map<String, List<String>> chunksByKey = new HashMap<>();
+        for (String taskId : taskIds) {
+            String key = identity.keyFor(taskId);
+            List<String> chunk = chunksByKey.computeIfAbsent(key, k -> new ArrayList<>());
+            chunk.add(taskId);
+
+            if (chunk.size() == bulkChunkSize) {
+                removeChunk(commands, key, chunk);
+                chunksByKey.remove(key);
+            }
+        }
+        chunksByKey.forEach((key, chunk) -> removeChunk(commands, key, chunk));
+    }
+
+    /**
+     * Removes tasks of a single shard from all priorities, along with their recurrences, and their payloads, retries
+     * and cold buckets when enabled.
+     */
+    private void removeChunk(RedisDriver.Commands commands, String key, List<String> taskIds) {
+        commands.removeAllFromSet(key, taskIds);
+        for (int priority = 1; priority < identity.priorityLevels(); priority++) {
+            commands.removeAllFromSet(identity.keyFor(taskIds.get(0), priority), taskIds);
+        }
+        commands.removeAllFromHash(identity.keyFor(RECURRENCE_KEY_SUFFIX, taskIds.get(0)), taskIds);
+        if (taskPayloads) {
+            commands.removeAllFromHash(identity.keyFor(PAYLOAD_KEY_SUFFIX, taskIds.get(0)), taskIds);
+        }
+        if (retryPolicy != null) {
+            commands.removeAllFromSet(identity.keyFor(DEAD_LETTER_KEY_SUFFIX, taskIds.get(0)), taskIds);
+            commands.removeAllFromHash(identity.keyFor(ATTEMPT_KEY_SUFFIX, taskIds.get(0)), taskIds);
+        }
+        if (coldBucketMillis > 0) {
+            // tasks left in their cold bucket are dropped once it is promoted.
+            commands.removeAllFromHash(identity.keyFor(COLD_KEY_SUFFIX, taskIds.get(0)), taskIds);
+        }
+    }
+
+    /**
+     * Sends writes in a pipeline, unless they use cold buckets, whose scripts cannot be pipelined.
+     */
+    private void executeWrites(Consumer<RedisDriver.Commands> block) {
+        if (coldBucketMillis > 0) {
+            driver.execute(block);
+        } else {
+            driver.executePipelined(block);
+        }
+    }
+
+    /**
+     * @return whether a task due at the given time is held in a cold bucket, when written at
+     * <code>coldAfter - coldBucketMillis</code>.
+     */
+    private boolean isCold(long triggerTimeMillis, long coldAfter) {
+        return coldBucketMillis > 0 && Math.floorDiv(triggerTimeMillis, coldBucketMillis) * coldBucketMillis > coldAfter;
     }
 
     @Override
     public void unscheduleAllTasks() {
-        driver.execute(commands -> commands.remove(identity.key()));
+        driver.execute(commands -> {
+            identity.allPriorityKeys().forEach(commands::remove);
+            identity.keys(IN_FLIGHT_KEY_SUFFIX).forEach(commands::remove);
+            identity.keys(PAYLOAD_KEY_SUFFIX).forEach(commands::remove);
+            identity.keys(RECURRENCE_KEY_SUFFIX).forEach(commands::remove);
+            identity.keys(LIMIT_KEY_SUFFIX).forEach(commands::remove);
+            identity.keys(IN_FLIGHT_BY_TYPE_KEY_SUFFIX).forEach(commands::remove);
+            identity.keys(ATTEMPT_KEY_SUFFIX).forEach(commands::remove);
+            identity.keys(DEAD_LETTER_KEY_SUFFIX).forEach(commands::remove);
+            for (int shard = 0; shard < identity.shards(); shard++) {
+                String bucketIndexKey = identity.key(shard, BUCKET_INDEX_KEY_SUFFIX);
+                Set<String> buckets;
+                while (!(buckets = commands.peekByScore(bucketIndexKey, Long.MAX_VALUE, bulkChunkSize).keySet()).isEmpty()) {
+                    for (String bucket : buckets) {
+                        commands.remove(identity.bucketKey(shard, Long.parseLong(bucket)));
+                    }
+                    commands.removeAllFromSet(bucketIndexKey, buckets);
+                }
+            }
+            identity.keys(BUCKET_INDEX_KEY_SUFFIX).forEach(commands::remove);
+            identity.keys(COLD_KEY_SUFFIX).forEach(commands::remove);
+        });
+        if (writeCoalescingMillis > 0) {
+            synchronized (coalescedWrites) {
+                coalescedWrites.clear();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Instant> deadLetters(int limit) {
+        List<Map.Entry<String, Long>> deadLetters = driver.fetch(
+                commands -> identity.keys(DEAD_LETTER_KEY_SUFFIX).stream()
+                                    .flatMap(key -> commands.peekByScore(key, Long.MAX_VALUE, limit).entrySet().stream())
+                                    .collect(toList()));
+        deadLetters.sort(Map.Entry.comparingByValue());
+
+        Map<String, Instant> failureTimes = new LinkedHashMap<>();
+        deadLetters.stream().limit(limit).forEach(
+                entry -> failureTimes.put(taskIdCodec.decode(entry.getKey()), Instant.ofEpochMilli(entry.getValue())));
+        return failureTimes;
+    }
+
+    @Override
+    public long deadLetterCount() {
+        return driver.fetch(commands -> identity.keys(DEAD_LETTER_KEY_SUFFIX).stream().mapToLong(commands::count).sum());
+    }
+
+    @Override
+    public int replayDeadLetters(Collection<String> taskIds) {
+        Map<Integer, List<String>> taskIdsByShard = new HashMap<>();
+        for (String taskId : taskIds) {
+            String member = taskIdCodec.encode(taskId);
+            taskIdsByShard.computeIfAbsent(identity.shardOf(member), shard -> new ArrayList<>()).add(member);
+        }
+        return driver.fetch(commands -> taskIdsByShard.entrySet().stream()
+                                                      .mapToInt(entry -> replayFromShard(commands, entry.getKey(), entry.getValue()))
+                                                      .sum());
+    }
+
+    @Override
+    public int replayAllDeadLetters() {
+        int replayed = 0;
+        for (int shard = 0; shard < identity.shards(); shard++) {
+            int shardToReplay = shard;
+            int replayedBatch;
+            do {
+                replayedBatch = driver.fetch(commands -> replayFromShard(commands, shardToReplay, Collections.emptyList()));
+                replayed += replayedBatch;
+            } while (replayedBatch == bulkChunkSize);
+        }
+        return replayed;
+    }
+
+    /**
+     * Replays the given dead-lettered tasks of a shard, or up to a chunk of its oldest ones when none is given.
+     */
+    private int replayFromShard(RedisDriver.Commands commands, int shard, List<String> taskIds) {
+        List<String> replayed = commands.replayDeadLetters(identity.replayKeys(shard), clock.millis(), bulkChunkSize, taskIds);
+        if (!replayed.isEmpty() && wakeupNotifications) {
+            commands.publish(identity.wakeupChannel(), String.valueOf(clock.millis()));
+        }
+        return replayed.size();
     }
 
     @PostConstruct
     public void start() {
-        pollingThread = new PollingThread(this, maxRetriesOnConnectionFailure, pollingDelayMillis);
-        pollingThread.setName(identity.name() + "-polling");
+        if (coldBucketMillis > 0 && coldBucketMillis <= pollingDelayMillis) {
+            throw new IllegalStateException("Cold buckets must be longer than the polling delay, to be moved before they start.");
+        }
+        if (!taskLimits.isEmpty()) {
+            limits = new TaskLimits(taskLimits, taskTypeSeparator, identity.shards(), inFlightTimeoutMillis);
+        }
+        // a hosted scheduler is not polled while its executor is full: the engine must probe it again once it is not.
+        dispatcher = engine != null ? new TaskDispatcher(taskExecutor, maxPendingTasks, engine::wakeUp)
+                                    : new TaskDispatcher(taskExecutor, maxPendingTasks);
+        if (lookaheadMillis > 0) {
+            lookaheadBuffer = new LookaheadBuffer(lookaheadMillis, lookaheadBufferSize, clock.millis());
+        }
+        if (latenessTargetMillis > 0) {
+            latenessController = new LatenessController(latenessTargetMillis, Math.max(1, minPollingDelayMillis),
+                                                        pollingDelayMillis, LATENESS_WINDOW_MILLIS);
+        }
+
+        if (partitionedShards) {
+            ownership = new ShardOwnership(driver, identity, clock, heartbeatIntervalMillis);
+            ownership.start();
+        }
+
+        if (engine != null && lookaheadBuffer != null) {
+            throw new IllegalStateException("The lookahead mode cannot be used by schedulers hosted by an engine.");
+        }
+        if (engine == null) {
+            pollingThread = new PollingThread(this, maxRetriesOnConnectionFailure, metrics, circuitBreaker);
+            pollingThread.setName(identity.name() + "-polling");
+        }
+
+        if (wakeupNotifications) {
+            wakeupSubscription = driver.subscribe(identity.wakeupChannel(), this::wakeUpIfEarlier);
+        }
+        if (writeCoalescingMillis > 0) {
+            coalescingFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, identity.name() + "-coalescing");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
 
-        pollingThread.start();
+        if (engine != null) {
+            engine.register(this);
+        } else {
+            pollingThread.start();
+        }
 
         log.info(String.format("[%s] Started Redis Scheduler (polling freq: [%sms])", identity.name(), pollingDelayMillis));
     }
@@ -69,9 +763,33 @@ public class RedisTaskScheduler implements TaskScheduler, TaskRunner {
     @Override
     @PreDestroy
     public void close() {
+        if (wakeupSubscription != null) {
+            wakeupSubscription.unsubscribe();
+            wakeupSubscription = null;
+        }
         if (pollingThread != null) {
             pollingThread.requestStop();
         }
+        if (engine != null) {
+            engine.unregister(this);
+        }
+        if (ownership != null) {
+            ownership.close();
+        }
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        if (ownedTaskExecutor != null) {
+            ownedTaskExecutor.shutdown();
+        }
+        if (coalescingFlusher != null) {
+            coalescingFlusher.shutdown();
+            try {
+                flushCoalescedWrites();
+            } catch (RuntimeException e) {
+                log.error(String.format("[%s] Could not write coalesced writes on shutdown", identity.name()), e);
+            }
+        }
     }
 
     public void setClock(Clock clock) {
@@ -82,59 +800,944 @@ public class RedisTaskScheduler implements TaskScheduler, TaskRunner {
      * If multiple schedulers are needed for the same application, customize their names to differentiate them in logs.
      */
     public void setSchedulerName(String schedulerName) {
-        this.identity = SchedulerIdentity.of(schedulerName);
+        this.identity = identity.named(schedulerName);
     }
 
     /**
-     * Delay between polling of the scheduled tasks. The lower the value, the best precision in triggering tasks.
-     * However, the lower the value, the higher the load on Redis.
+     * Spreads tasks over multiple sorted sets (shards), each holding the tasks whose IDs hash to it. On Redis Cluster,
+     * shards are spread across nodes, so that scheduling and triggering are not bound to a single node. All instances
+     * of the same scheduler must use the same number of shards. By default, all tasks are kept in a single sorted set.
      */
-    public void setPollingDelayMillis(int pollingDelayMillis) {
-        this.pollingDelayMillis = pollingDelayMillis;
+    public void setShards(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Number of shards must be at least 1.");
+        }
+        this.identity = identity.withShards(shards);
     }
 
-    public void setMaxRetriesOnConnectionFailure(int maxRetriesOnConnectionFailure) {
-        this.maxRetriesOnConnectionFailure = maxRetriesOnConnectionFailure;
-    }
+    /**
+     * Splits shards between the live instances of this scheduler, so that each instance only polls its own shards
+     * instead of all instances competing for the same tasks. Instances register a heartbeat in Redis, and shards are
+     * rebalanced when instances join or leave. Use at least as many shards as instances, as instances owning no shard
+     * stay idle. Clocks of all instances must be roughly in sync, within a heartbeat interval. Disabled by default.
+     */
+    public void setPartitionedShards(boolean partitionedShards) {
+        this.partitionedShards = partitionedShards;
+    }
+
+    /**
+     * How often instances register their heartbeat, when shards are partitioned. An instance is considered gone, and
+     * its shards are taken over, after 3 missed heartbeats.
+     */
+    public void setHeartbeatIntervalMillis(int heartbeatIntervalMillis) {
+        if (heartbeatIntervalMillis < 1) {
+            throw new IllegalArgumentException("Heartbeat interval must be at least 1 millisecond.");
+        }
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+    }
+
+    /**
+     * Number of priority levels tasks can be scheduled at (see {@link #scheduleAt(String, Instant, int)}). Each priority
+     * level of each shard is held in its own sorted set, and due tasks of higher priorities are claimed first. All
+     * instances of the same scheduler must use the same number of priority levels. Tasks whose lease expired are
+     * scheduled again at the default priority. By default, all tasks have the same priority.
+     */
+    public void setPriorityLevels(int priorityLevels) {
+        if (priorityLevels < 1) {
+            throw new IllegalArgumentException("Number of priority levels must be at least 1.");
+        }
+        this.identity = identity.withPriorityLevels(priorityLevels);
+    }
+
+    /**
+     * Hosts this scheduler in the given engine, which polls it along with many other schedulers from a shared pool of
+     * threads, instead of starting a polling thread for this scheduler (see {@link SchedulerEngine}). The polling delay
+     * remains the maximum time between two polls of this scheduler. Hosted schedulers cannot use the lookahead mode.
+     */
+    public void setEngine(SchedulerEngine engine) {
+        this.engine = engine;
+    }
 
-    @SuppressWarnings("unchecked")
-    public boolean triggerNextTaskIfFound() {
-        return driver.fetch(commands -> {
-            boolean taskWasTriggered = false;
+    /**
+     * Delay between polling of the scheduled tasks. The lower the value, the best precision in triggering tasks.
+     * However, the lower the value, the higher the load on Redis.
+     */
+    public void setPollingDelayMillis(int pollingDelayMillis) {
+        this.pollingDelayMillis = pollingDelayMillis;
+    }
 
-            commands.watch(identity.key());
+    /**
+     * When enabled, the poller looks up the trigger time of the next scheduled task once no task is due, and waits until
+     * then instead of waiting for the whole polling delay. The polling delay remains the maximum time between two polls.
+     */
+    public void setAdaptivePolling(boolean adaptivePolling) {
+        this.adaptivePolling = adaptivePolling;
+    }
 
-            Optional<String> nextTask = commands.firstByScore(identity.key(), 0, clock.millis());
+    /**
+     * Minimum time between two polls once no task is due, which bounds the load on Redis when adaptive polling or
+     * wakeup notifications are enabled.
+     */
+    public void setMinPollingDelayMillis(int minPollingDelayMillis) {
+        this.minPollingDelayMillis = minPollingDelayMillis;
+    }
 
-            if (nextTask.isPresent()) {
-                String nextTaskId = nextTask.get();
+    /**
+     * Maximum random delay added to each wait between two polls. When many instances of the same scheduler wait for
+     * the same task, jitter spreads their polls instead of having them all hit Redis at once.
+     */
+    public void setPollingJitterMillis(int pollingJitterMillis) {
+        this.pollingJitterMillis = pollingJitterMillis;
+    }
 
-                commands.multi();
-                commands.removeFromSet(identity.key(), nextTaskId);
-                boolean executionSuccess = commands.exec();
+    /**
+     * When enabled, scheduling a task notifies all instances of this scheduler through Redis Pub/Sub. Pollers then poll
+     * adaptively (see {@link #setAdaptivePolling(boolean)}), and wake up early when an earlier task gets scheduled. The polling delay remains the maximum time between two polls, and can then safely be raised.
+     */
+    public void setWakeupNotifications(boolean wakeupNotifications) {
+        this.wakeupNotifications = wakeupNotifications;
+    }
 
-                if (executionSuccess) {
-                    log.debug(String.format("[%s] Triggering execution of task [%s]", identity.name(), nextTaskId));
+    /**
+     * Number of consecutive connection failures after which the polling thread stops for good. Defaults to
+     * <code>0</code>, meaning that the poller never gives up, and resumes once Redis is reachable again. The poller used
+     * to stop after a single failure by default: set to <code>1</code> to keep that behavior.
+     */
+    public void setMaxRetriesOnConnectionFailure(int maxRetriesOnConnectionFailure) {
+        this.maxRetriesOnConnectionFailure = maxRetriesOnConnectionFailure;
+    }
 
-                    tryTaskExecution(nextTaskId);
-                    taskWasTriggered = true;
-                } else {
-                    log.warn(String.format("[%s] Race condition detected for triggering of task [%s]. " +
-                                                   "The task has probably been triggered by another instance of this application.", identity.name(), nextTaskId));
-                }
-            } else {
-                commands.unwatch();
+    /**
+     * Delay before polling again after a connection failure, doubled on each consecutive failure up to
+     * <code>maxConnectionBackoffMillis</code>, and randomly shortened by up to half so that instances do not all
+     * reconnect at once. Defaults to 100 milliseconds.
+     */
+    public void setConnectionBackoffMillis(int connectionBackoffMillis) {
+        if (connectionBackoffMillis < 1) {
+            throw new IllegalArgumentException("Connection backoff must be at least 1 millisecond.");
+        }
+        this.connectionBackoffMillis = connectionBackoffMillis;
+        this.circuitBreaker = new CircuitBreaker(connectionBackoffMillis, maxConnectionBackoffMillis);
+    }
+
+    /**
+     * Maximum delay before polling again after consecutive connection failures. Defaults to 30 seconds.
+     */
+    public void setMaxConnectionBackoffMillis(int maxConnectionBackoffMillis) {
+        if (maxConnectionBackoffMillis < connectionBackoffMillis) {
+            throw new IllegalArgumentException("Maximum connection backoff must be at least the connection backoff.");
+        }
+        this.maxConnectionBackoffMillis = maxConnectionBackoffMillis;
+        this.circuitBreaker = new CircuitBreaker(connectionBackoffMillis, maxConnectionBackoffMillis);
+    }
+
+    /**
+     * Enables buffering the tasks scheduled with {@link #scheduleAt(String, Instant)} while Redis is unreachable, up
+     * to the given number of tasks. Buffered tasks are kept in memory, and scheduled with as few round trips as
+     * possible once the poller reaches Redis again: they are lost if the application stops meanwhile. Once the buffer
+     * is full, scheduling throws a {@link RedisConnectException}. Disabled by default.
+     */
+    public void setWriteBufferSize(int writeBufferSize) {
+        if (writeBufferSize < 0) {
+            throw new IllegalArgumentException("Write buffer size must not be negative.");
+        }
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    /**
+     * Delays writes of tasks due later than the given window, and only writes the last write of each task within the
+     * window, in a single pipeline with all other coalesced writes. This reduces the writes to Redis when tasks are
+     * rescheduled or unscheduled many times in a row, for example to push a timeout back. Tasks due within the window
+     * are written right away. A task may still be triggered at its previous trigger time until its coalesced write is
+     * flushed, and coalesced writes are lost if the application dies before they are flushed. A failed flush is logged
+     * and retried after another window, keeping the writes coalesced meanwhile. Only
+     * {@link #scheduleAt(String, Instant)} and {@link #unschedule(String)} are coalesced. Disabled by default.
+     */
+    public void setWriteCoalescingMillis(int writeCoalescingMillis) {
+        if (writeCoalescingMillis < 0) {
+            throw new IllegalArgumentException("Write coalescing window must not be negative.");
+        }
+        this.writeCoalescingMillis = writeCoalescingMillis;
+    }
+
+    /**
+     * Maximum number of tasks whose writes are coalesced, after which they are flushed right away, which bounds the
+     * memory used by coalesced writes. Defaults to 10000.
+     */
+    public void setMaxCoalescedWrites(int maxCoalescedWrites) {
+        if (maxCoalescedWrites < 1) {
+            throw new IllegalArgumentException("Maximum number of coalesced writes must be at least 1.");
+        }
+        this.maxCoalescedWrites = maxCoalescedWrites;
+    }
+
+    /**
+     * @return the state of the connection to Redis, as seen by the last polls and buffered writes.
+     */
+    public CircuitState circuitState() {
+        return circuitBreaker.state();
+    }
+
+    /**
+     * Maximum number of due tasks claimed from Redis in a single round trip. Claimed tasks are then triggered one after
+     * the other, in the order of their trigger time. Higher values speed up the draining of large backlogs of due tasks.
+     */
+    public void setClaimBatchSize(int claimBatchSize) {
+        if (claimBatchSize < 1) {
+            throw new IllegalArgumentException("Claim batch size must be at least 1.");
+        }
+        this.claimBatchSize = claimBatchSize;
+    }
+
+    /**
+     * Maximum number of tasks sent in a single Redis command by {@link #scheduleAll(Map)} and
+     * {@link #unscheduleAll(Collection)}. All commands of a bulk operation are pipelined.
+     */
+    public void setBulkChunkSize(int bulkChunkSize) {
+        if (bulkChunkSize < 1) {
+            throw new IllegalArgumentException("Bulk chunk size must be at least 1.");
+        }
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    /**
+     * Executor on which the listener is notified of due tasks. By default, tasks are run directly on the polling
+     * thread, which means that a slow task delays all other due tasks. Any executor can be provided, including a
+     * virtual-thread-per-task executor on recent JDKs. The provided executor is not shut down by the scheduler.
+     */
+    public void setTaskExecutor(Executor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Convenience alternative to {@link #setTaskExecutor(Executor)}: runs tasks on a fixed pool of threads owned by the
+     * scheduler, which is shut down when the scheduler is stopped.
+     */
+    public void setTaskExecutorThreads(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.ownedTaskExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, identity.name() + "-task-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.taskExecutor = ownedTaskExecutor;
+    }
+
+    /**
+     * Maximum number of tasks that were claimed but have not completed yet. Once reached, the scheduler stops claiming
+     * tasks until running tasks complete. This also caps the number of tasks claimed in a single round trip.
+     */
+    public void setMaxPendingTasks(int maxPendingTasks) {
+        if (maxPendingTasks < 1) {
+            throw new IllegalArgumentException("Maximum number of pending tasks must be at least 1.");
+        }
+        this.maxPendingTasks = maxPendingTasks;
+    }
+
+    /**
+     * Receives measurements of the polling and trigger pipeline, for example to export them to a monitoring system.
+     * See {@link com.github.davidmarquis.redisscheduler.metrics.micrometer.MicrometerSchedulerMetrics}.
+     */
+    public void setMetrics(SchedulerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * How often the number of scheduled tasks and the lateness of the oldest due task are sampled from Redis, when
+     * metrics are enabled. Sampling costs one additional round trip per shard.
+     */
+    public void setBacklogSampleIntervalMillis(int backlogSampleIntervalMillis) {
+        if (backlogSampleIntervalMillis < 1) {
+            throw new IllegalArgumentException("Backlog sample interval must be at least 1 millisecond.");
+        }
+        this.backlogSampleIntervalMillis = backlogSampleIntervalMillis;
+    }
+
+    /**
+     * Enables the tuning of the polling delay to keep the 99th percentile of the trigger lateness (time between the
+     * trigger time of a task and the moment it is claimed) under the given target, while polling as rarely as
+     * possible. The delay is then kept between <code>minPollingDelayMillis</code> and <code>pollingDelayMillis</code>.
+     * Lateness caused by a backlog of due tasks rather than by the polling delay cannot be reduced this way. Disabled
+     * by default.
+     */
+    public void setLatenessTargetMillis(int latenessTargetMillis) {
+        this.latenessTargetMillis = latenessTargetMillis;
+    }
+
+    /**
+     * Enables the lookahead mode: instead of asking Redis for due tasks on each poll, the poller fetches the tasks
+     * scheduled within the given window into a local buffer, once per window, and claims each of them right at its
+     * trigger time. Claims are still atomic, so tasks unscheduled, rescheduled or claimed by another instance meanwhile
+     * are skipped. Tasks scheduled within the current window by another instance are only seen at the next window,
+     * unless wakeup notifications are enabled (see {@link #setWakeupNotifications(boolean)}). Disabled by default.
+     */
+    public void setLookaheadMillis(int lookaheadMillis) {
+        if (lookaheadMillis < 0 || lookaheadMillis > MAX_LOOKAHEAD_MILLIS) {
+            throw new IllegalArgumentException(String.format("Lookahead must be between 0 and %s milliseconds.", MAX_LOOKAHEAD_MILLIS));
+        }
+        this.lookaheadMillis = lookaheadMillis;
+    }
+
+    /**
+     * Maximum number of tasks held in the lookahead buffer. When more tasks are scheduled within the lookahead window,
+     * the window is shortened to the buffered tasks.
+     */
+    public void setLookaheadBufferSize(int lookaheadBufferSize) {
+        if (lookaheadBufferSize < 1) {
+            throw new IllegalArgumentException("Lookahead buffer size must be at least 1.");
+        }
+        this.lookaheadBufferSize = lookaheadBufferSize;
+    }
+
+    /**
+     * Enables storing payloads along with tasks (see {@link #scheduleAt(String, Instant, byte[])}), and fetching them
+     * in the same round trip as the claim of tasks. Payloads are handed to the listener if it implements
+     * {@link PayloadTriggerListener}. All instances of the same scheduler must enable payloads, so that payloads are
+     * removed along with unscheduled tasks. Disabled by default.
+     */
+    public void setTaskPayloads(boolean taskPayloads) {
+        this.taskPayloads = taskPayloads;
+    }
+
+    /**
+     * Encodes task IDs before storing them in Redis, for example to store them in a shorter form with
+     * {@link TaskIdCodec#compact()}, which shrinks the memory used by the sorted sets when they hold many tasks.
+     * Encoded IDs are used to pick the shard of tasks, and the type of tasks is the prefix of their encoded ID. All
+     * instances of the same scheduler must use the same codec, and changing the codec of a scheduler which already holds
+     * tasks prevents them from being unscheduled. Task IDs are stored as they are by default.
+     */
+    public void setTaskIdCodec(TaskIdCodec taskIdCodec) {
+        if (taskIdCodec == null) {
+            throw new IllegalArgumentException("A task ID codec must be provided.");
+        }
+        this.taskIdCodec = taskIdCodec;
+    }
+
+    /**
+     * Limits the claim of tasks of the given type, across all instances of this scheduler (see {@link TaskLimit}).
+     * The type of a task is the prefix of its ID before the type separator, for example <code>email</code> for
+     * <code>email:1234</code>. Tasks over the limit are left scheduled and skipped by claims, so that other tasks are
+     * still triggered meanwhile, and are claimed on a later poll once the limit allows it. In lookahead mode, skipped
+     * tasks are claimed once the lookahead buffer is refilled. With several shards, each shard enforces an equal share
+     * of the limit, which is then only exact when tasks of the type spread evenly over shards: a maximum number of
+     * tasks in flight must then be at least the number of shards, and is rounded down to a multiple of it. All
+     * instances of the same scheduler must use the same limits. No task type is limited by default.
+     */
+    public void setTaskLimit(String taskType, TaskLimit limit) {
+        if (limit == null) {
+            taskLimits.remove(taskType);
+        } else {
+            taskLimits.put(taskType, limit);
+        }
+    }
+
+    /**
+     * Separator ending the type of a task in its ID, when task limits are set. Tasks whose ID does not contain the
+     * separator have no type, and are never limited. Defaults to <code>:</code>.
+     */
+    public void setTaskTypeSeparator(String taskTypeSeparator) {
+        if (taskTypeSeparator == null || taskTypeSeparator.isEmpty()) {
+            throw new IllegalArgumentException("Task type separator must not be empty.");
+        }
+        this.taskTypeSeparator = taskTypeSeparator;
+    }
+
+    /**
+     * Maximum time a claimed task counts as in flight towards the limit of its type, should its instance die before
+     * reporting its completion. Must be longer than the execution of any limited task. Defaults to 5 minutes.
+     */
+    public void setInFlightTimeoutMillis(int inFlightTimeoutMillis) {
+        if (inFlightTimeoutMillis < 1) {
+            throw new IllegalArgumentException("In-flight timeout must be at least 1 millisecond.");
+        }
+        this.inFlightTimeoutMillis = inFlightTimeoutMillis;
+    }
+
+    /**
+     * Retries tasks whose listener threw an exception, according to the given policy, instead of only logging the
+     * exception. A failed task is scheduled again at the default priority, atomically with its acknowledgement, unless
+     * it was scheduled again meanwhile. Tasks which failed all their attempts are moved to a dead-letter sorted set,
+     * where they can be inspected and replayed (see {@link #deadLetters(int)}). Occurrences of recurring tasks are not
+     * retried. All instances of the same scheduler must use a retry policy, so that retries are removed along with
+     * unscheduled tasks. Disabled by default.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Keeps tasks due far in the future out of the sorted set polled for due tasks, so that it stays small: tasks are
+     * grouped in cold buckets of the given duration, each held in its own sorted set, and a bucket is moved to the
+     * polled sorted set one bucket duration before it starts. Only tasks scheduled at the default priority without a
+     * payload or recurrence are held in cold buckets, and scheduling or unscheduling tasks is then no longer
+     * pipelined. The duration must be longer than the polling delay, and all instances of the
+     * same scheduler must use the same duration. Disabled by default.
+     */
+    public void setColdBucketMillis(int coldBucketMillis) {
+        if (coldBucketMillis < 0) {
+            throw new IllegalArgumentException("Cold bucket duration must not be negative.");
+        }
+        this.coldBucketMillis = coldBucketMillis;
+    }
+
+    /**
+     * Enables at-least-once execution: instead of being removed from Redis when claimed, tasks are leased for the given
+     * duration, and only removed once the listener returns without throwing an exception. Tasks whose lease expired,
+     * because the listener failed or the instance died while executing them, are scheduled again for immediate
+     * execution. The lease duration must be longer than the execution of any task, or tasks may be executed twice.
+     * Disabled by default.
+     */
+    public void setLeaseDurationMillis(int leaseDurationMillis) {
+        this.leaseDurationMillis = leaseDurationMillis;
+    }
+
+    /**
+     * How often expired leases are looked up, when leases are enabled.
+     */
+    public void setLeaseReapIntervalMillis(int leaseReapIntervalMillis) {
+        if (leaseReapIntervalMillis < 1) {
+            throw new IllegalArgumentException("Lease reap interval must be at least 1 millisecond.");
+        }
+        this.leaseReapIntervalMillis = leaseReapIntervalMillis;
+    }
+
+    /**
+     * Maximum number of expired leases scheduled again per Redis round trip, when leases are enabled.
+     */
+    public void setLeaseReapBatchSize(int leaseReapBatchSize) {
+        if (leaseReapBatchSize < 1) {
+            throw new IllegalArgumentException("Lease reap batch size must be at least 1.");
+        }
+        this.leaseReapBatchSize = leaseReapBatchSize;
+    }
+
+    public boolean triggerNextTaskIfFound() throws InterruptedException {
+        return triggerNextTaskIfFound(true);
+    }
+
+    /**
+     * @param waitForRoom whether to wait for the task executor to have room for more tasks. Otherwise, no task is
+     *                    claimed while the executor is full (see {@link #isSaturated()}).
+     */
+    boolean triggerNextTaskIfFound(boolean waitForRoom) throws InterruptedException {
+        flushBufferedWrites();
+        sampleBacklogIfDue();
+        reapExpiredLeasesIfDue();
+        promoteColdBucketsIfDue();
+        if (lookaheadBuffer != null) {
+            return triggerBufferedTasks();
+        }
+
+        int slots = waitForRoom ? dispatcher.reserve(claimBatchSize) : dispatcher.tryReserve(claimBatchSize);
+        if (slots == 0) {
+            return false;
+        }
+
+        List<ClaimedTask> dueTasks;
+        long pollMillis = clock.millis();
+        int resets = heldBackResets();
+        long claimStart = System.nanoTime();
+        try {
+            dueTasks = driver.fetch(commands -> claimDueTasks(commands, slots));
+        } catch (RuntimeException e) {
+            dispatcher.release(slots);
+            throw e;
+        }
+        boolean triggered = dispatchClaimed(dueTasks, slots, claimStart);
+        recordHeldBack(triggered, pollMillis, resets);
+        return triggered;
+    }
+
+    private int heldBackResets() {
+        synchronized (heldBackLock) {
+            return heldBackResets;
+        }
+    }
+
+    /**
+     * Remembers that a poll claimed nothing while tasks have limits, unless a task due by then was scheduled meanwhile.
+     */
+    private void recordHeldBack(boolean triggered, long pollMillis, int resets) {
+        synchronized (heldBackLock) {
+            if (triggered || limits == TaskLimits.NONE) {
+                heldBackMillis = Long.MIN_VALUE;
+            } else if (resets == heldBackResets) {
+                heldBackMillis = pollMillis;
+            }
+        }
+    }
+
+    /**
+     * Stops holding back the tasks due by the given time, as a task due by then was just scheduled: it may not be held
+     * back by any limit.
+     *
+     * @return whether tasks were held back until then.
+     */
+    private boolean releaseHeldBack(long triggerTimeMillis) {
+        synchronized (heldBackLock) {
+            if (triggerTimeMillis > clock.millis()) {
+                return false;
             }
+            // a poll in progress must not hold the task back either.
+            heldBackResets++;
+            boolean heldBack = triggerTimeMillis <= heldBackMillis;
+            heldBackMillis = Long.MIN_VALUE;
+            return heldBack;
+        }
+    }
+
+    /**
+     * @return the time of the last poll which claimed no task while tasks have limits: tasks due by then do not call
+     * for an earlier poll.
+     */
+    long heldBackMillis() {
+        synchronized (heldBackLock) {
+            return heldBackMillis;
+        }
+    }
+
+    /**
+     * Polls right away a task scheduled by this instance which would otherwise wait for the polling delay, as due
+     * before the last poll which claimed nothing.
+     */
+    private void scheduledLocally(long triggerTimeMillis) {
+        if (releaseHeldBack(triggerTimeMillis)) {
+            wakeUpPoller();
+        }
+    }
+
+    private void wakeUpPoller() {
+        if (engine != null) {
+            engine.wakeUp();
+        } else if (pollingThread != null) {
+            pollingThread.wakeUp();
+        }
+    }
+
+    /**
+     * Claims the buffered tasks that are due, refilling the buffer first once its horizon is reached.
+     */
+    private boolean triggerBufferedTasks() throws InterruptedException {
+        if (lookaheadBuffer.needsRefill(clock.millis())) {
+            refillLookaheadBuffer();
+        }
+        if (lookaheadBuffer.nextTriggerTimeMillis() > clock.millis()) {
+            return false;
+        }
+
+        int slots = dispatcher.reserve(claimBatchSize);
+        if (slots == 0) {
+            return false;
+        }
+
+        long now = clock.millis();
+        Map<Integer, List<String>> dueTaskIdsByShard = new LinkedHashMap<>();
+        for (LookaheadBuffer.Entry entry : lookaheadBuffer.expire(now, slots)) {
+            dueTaskIdsByShard.computeIfAbsent(entry.shard, shard -> new ArrayList<>()).add(entry.taskId);
+        }
+
+        List<ClaimedTask> dueTasks = new ArrayList<>();
+        long claimStart = System.nanoTime();
+        long leaseExpiry = leaseDurationMillis > 0 ? now + leaseDurationMillis : 0;
+        try {
+            driver.execute(commands -> dueTaskIdsByShard.forEach(
+                    (shard, taskIds) -> dueTasks.addAll(commands.claimMembers(identity.claimKeys(shard), now, leaseExpiry,
+                                                                              taskPayloads, limits, taskIds))));
+        } catch (RuntimeException e) {
+            // the expired tasks are still in Redis: fetch them again.
+            lookaheadBuffer.requestRefill();
+            dispatcher.release(slots);
+            throw e;
+        }
+
+        // buffered tasks that were not claimed were unscheduled, rescheduled or claimed elsewhere: look for more.
+        return dispatchClaimed(dueTasks, slots, claimStart) || !dueTaskIdsByShard.isEmpty();
+    }
 
-            return taskWasTriggered;
+    private void refillLookaheadBuffer() {
+        long now = clock.millis();
+        long windowEnd = lookaheadBuffer.windowEndMillis(now);
+        Map<Integer, List<Map<String, Long>>> tasksByShard = driver.fetch(commands -> {
+            Map<Integer, List<Map<String, Long>>> fetched = new HashMap<>();
+            for (int shard : ownedShards()) {
+                List<Map<String, Long>> shardTasks = new ArrayList<>();
+                for (String key : identity.priorityKeys(shard)) {
+                    shardTasks.add(commands.peekByScore(key, windowEnd, lookaheadBuffer.capacity()));
+                }
+                fetched.put(shard, shardTasks);
+            }
+            return fetched;
         });
+        lookaheadBuffer.refill(now, tasksByShard);
+    }
+
+    /**
+     * Dispatches claimed tasks, and releases the reserved slots left unused.
+     *
+     * @return whether any task was dispatched.
+     */
+    private boolean dispatchClaimed(List<ClaimedTask> dueTasks, int slots, long claimStartNanos) {
+        metrics.polled(dueTasks.size(), System.nanoTime() - claimStartNanos);
+        // pending recurring tasks are triggered by a later poll, once their next occurrence is known. They do not call
+        // for an immediate poll, which would spin on them for as long as their next occurrence cannot be stored.
+        advanceRecurrences(dueTasks);
+        dueTasks.removeIf(task -> task.status() == ClaimedTask.Status.PENDING);
+        dispatcher.release(slots - dueTasks.size());
+
+        long now = clock.millis();
+        for (ClaimedTask task : dueTasks) {
+            log.debug(String.format("[%s] Triggering execution of task [%s]", identity.name(),
+                                    taskIdCodec.decode(task.taskId())));
+
+            recordLateness(Math.max(0, now - task.triggerTimeMillis()));
+            dispatcher.dispatch(() -> tryTaskExecution(task));
+        }
+
+        return !dueTasks.isEmpty();
+    }
+
+    /**
+     * Claims due tasks from each polled shard in turn, starting from a different shard on each poll so that instances
+     * of the same scheduler do not all compete for the same shard.
+     */
+    private List<ClaimedTask> claimDueTasks(RedisDriver.Commands commands, int limit) {
+        int[] shards = ownedShards();
+        long now = clock.millis();
+        int firstShard = nextShard++;
+
+        List<ClaimedTask> claimed = new ArrayList<>();
+        for (int i = 0; i < shards.length && claimed.size() < limit; i++) {
+            int shard = shards[Math.floorMod(firstShard + i, shards.length)];
+            claimed.addAll(claimFromShard(commands, shard, now, limit - claimed.size()));
+        }
+        return claimed;
+    }
+
+    private List<ClaimedTask> claimFromShard(RedisDriver.Commands commands, int shard, long now, int limit) {
+        long leaseExpiry = leaseDurationMillis > 0 ? now + leaseDurationMillis : 0;
+        return commands.claimDue(identity.claimKeys(shard), now, limit, leaseExpiry, taskPayloads, limits);
+    }
+
+    /**
+     * Computes the occurrence following each claimed occurrence of a cron task, and stores them with a single round
+     * trip per shard. Should this fail, the tasks are claimed again, but not triggered, until it succeeds.
+     */
+    private void advanceRecurrences(List<ClaimedTask> claimedTasks) {
+        long now = clock.millis();
+        Map<String, List<ClaimedTask>> tasksByKey = new HashMap<>();
+        Map<String, List<Long>> occurrencesByKey = new HashMap<>();
+        for (ClaimedTask task : claimedTasks) {
+            if (task.storedRecurrence() == null) {
+                continue;
+            }
+            String key = identity.keyFor(RECURRENCE_KEY_SUFFIX, task.taskId());
+            long base = Math.max(task.recurrenceBaseMillis(), now);
+            tasksByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(task);
+            occurrencesByKey.computeIfAbsent(key, k -> new ArrayList<>())
+                            .add(Recurrence.decode(task.storedRecurrence()).nextOccurrence(base));
+        }
+
+        if (tasksByKey.isEmpty()) {
+            return;
+        }
+        try {
+            driver.execute(commands -> tasksByKey.forEach(
+                    (key, tasks) -> commands.advanceRecurrences(key, tasks, occurrencesByKey.get(key))));
+        } catch (RuntimeException e) {
+            log.warn(String.format("[%s] Could not compute the next occurrence of %s recurring tasks", identity.name(),
+                                   tasksByKey.values().stream().mapToInt(List::size).sum()), e);
+        }
+    }
+
+    /**
+     * Schedules expired leases again, one batch per round trip until no expired lease is left.
+     */
+    private void reapExpiredLeasesIfDue() {
+        if (leaseDurationMillis <= 0 || clock.millis() < nextLeaseReapMillis) {
+            return;
+        }
+
+        long now = clock.millis();
+        for (int i : ownedShards()) {
+            List<String> requeueKeys = identity.requeueKeys(i);
+
+            int requeued;
+            do {
+                requeued = driver.fetch(commands -> commands.requeueExpired(requeueKeys, now, leaseReapBatchSize)).size();
+                if (requeued > 0) {
+                    log.warn(String.format("[%s] Scheduled again %s tasks whose lease expired", identity.name(), requeued));
+                }
+            } while (requeued == leaseReapBatchSize);
+        }
+
+        nextLeaseReapMillis = now + leaseReapIntervalMillis;
+    }
+
+    /**
+     * Moves the cold buckets starting within the next bucket duration to the sorted sets of their shard, a bounded
+     * number of buckets and tasks per round trip until no such bucket is left.
+     */
+    private void promoteColdBucketsIfDue() {
+        if (coldBucketMillis <= 0 || clock.millis() < nextColdPromotionMillis) {
+            return;
+        }
+
+        long now = clock.millis();
+        long horizon = now + coldBucketMillis;
+        for (int i : ownedShards()) {
+            String key = identity.keys().get(i);
+            String coldKey = identity.key(i, COLD_KEY_SUFFIX);
+            String bucketIndexKey = identity.key(i, BUCKET_INDEX_KEY_SUFFIX);
+            String bucketKeyPrefix = identity.key(i, BUCKET_KEY_PREFIX_SUFFIX);
+
+            boolean bucketsLeft;
+            do {
+                bucketsLeft = driver.fetch(commands -> {
+                    Set<String> buckets = commands.peekByScore(bucketIndexKey, horizon, COLD_BUCKETS_PER_PROMOTION).keySet();
+                    if (buckets.isEmpty()) {
+                        return false;
+                    }
+                    int promoted = commands.promoteColdBuckets(key, coldKey, bucketIndexKey, bucketKeyPrefix, buckets, bulkChunkSize);
+                    if (promoted > 0) {
+                        log.debug(String.format("[%s] Moved %s tasks out of cold buckets", identity.name(), promoted));
+                    }
+                    return true;
+                });
+            } while (bucketsLeft);
+        }
+
+        nextColdPromotionMillis = now + COLD_PROMOTION_INTERVAL_MILLIS;
+    }
+
+    private void recordLateness(long latenessMillis) {
+        metrics.taskClaimed(latenessMillis);
+        if (latenessController != null) {
+            latenessController.record(latenessMillis);
+        }
+    }
+
+    private void sampleBacklogIfDue() {
+        if (metrics == SchedulerMetrics.NONE || clock.millis() < nextBacklogSampleMillis) {
+            return;
+        }
+
+        List<String> keys = identity.allPriorityKeys();
+        long size = driver.fetch(commands -> keys.stream().mapToLong(commands::count).sum());
+        Optional<Long> firstTriggerTime = driver.fetch(commands -> firstTriggerTime(commands, keys));
+
+        long now = clock.millis();
+        long lateness = firstTriggerTime.map(triggerTime -> Math.max(0, now - triggerTime)).orElse(0L);
+        metrics.backlogSampled(size, lateness);
+
+        nextBacklogSampleMillis = now + backlogSampleIntervalMillis;
+    }
+
+    private Optional<Long> firstTriggerTime(RedisDriver.Commands commands, List<String> keys) {
+        return keys.stream()
+                   .map(commands::firstScore)
+                   .filter(Optional::isPresent)
+                   .map(Optional::get)
+                   .min(Long::compare);
+    }
+
+    /**
+     * @return all shards, or only the shards owned by this instance when shards are partitioned.
+     */
+    int[] ownedShards() {
+        return ownership != null ? ownership.ownedShards() : IntStream.range(0, identity.shards()).toArray();
+    }
+
+    /**
+     * @return the keys of the sorted sets to look up for the next due task.
+     */
+    List<String> probeKeys() {
+        return IntStream.of(ownedShards()).boxed()
+                        .flatMap(shard -> identity.priorityKeys(shard).stream())
+                        .collect(toList());
+    }
+
+    CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    SchedulerMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * @return whether the task executor has no room for more tasks until some of the running tasks complete.
+     */
+    boolean isSaturated() {
+        return dispatcher.isFull();
+    }
+
+    long nowMillis() {
+        return clock.millis();
     }
 
-    private void tryTaskExecution(String task) {
+    /**
+     * @return the maximum time between two polls, even when no task is due.
+     */
+    long maxPollingDelayMillis() {
+        return latenessController != null ? latenessController.delayMillis(clock.millis()) : pollingDelayMillis;
+    }
+
+    String name() {
+        return identity.name();
+    }
+
+    public long nextPollDelayMillis() {
+        // any notification received while looking up the next task must wake the poller up, as it may be too late to
+        // be reflected by the lookup.
+        nextPollTimeMillis = Long.MAX_VALUE;
+
+        long maxDelay = maxPollingDelayMillis();
+        long delay = maxDelay;
+        if (lookaheadBuffer != null) {
+            // buffered tasks must be claimed right on time: no minimum delay nor jitter.
+            long nextPollTime = Math.min(lookaheadBuffer.nextTriggerTimeMillis(), lookaheadBuffer.horizonMillis());
+            delay = Math.max(0, Math.min(maxDelay, nextPollTime - clock.millis()));
+            nextPollTimeMillis = clock.millis() + delay;
+            return delay;
+        }
+        if (adaptivePolling || wakeupNotifications) {
+            List<String> keys = probeKeys();
+            Optional<Long> nextTriggerTime = driver.fetch(commands -> firstTriggerTime(commands, keys));
+            long now = clock.millis();
+
+            // a task due by the last poll was not claimed, as held back by the limits of its type: polling again right
+            // away would only spin until the limit allows claiming it.
+            long heldBack = heldBackMillis();
+            delay = nextTriggerTime.filter(triggerTime -> triggerTime > heldBack)
+                                   .map(triggerTime -> Math.min(maxDelay, triggerTime - now))
+                                   .orElse(delay);
+        }
+        delay = Math.max(minPollingDelayMillis, delay);
+        if (pollingJitterMillis > 0) {
+            delay += ThreadLocalRandom.current().nextInt(pollingJitterMillis + 1);
+        }
+
+        nextPollTimeMillis = clock.millis() + delay;
+        return delay;
+    }
+
+    private void wakeUpIfEarlier(String triggerTimeMillis) {
+        try {
+            long triggerTime = Long.parseLong(triggerTimeMillis);
+            if (lookaheadBuffer != null && triggerTime <= lookaheadBuffer.horizonMillis()) {
+                lookaheadBuffer.requestRefill();
+            }
+            releaseHeldBack(triggerTime);
+            if (engine != null || triggerTime < nextPollTimeMillis) {
+                wakeUpPoller();
+            }
+        } catch (NumberFormatException e) {
+            log.warn(String.format("[%s] Ignoring malformed wakeup notification [%s]", identity.name(), triggerTimeMillis));
+        }
+    }
+
+    private static CompletionStage<Void> completedStage(Runnable operation) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            operation.run();
+            result.complete(null);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void tryTaskExecution(ClaimedTask claimedTask) {
+        String task = claimedTask.taskId();
+        String taskId = taskIdCodec.decode(task);
+        long start = System.nanoTime();
+        boolean failed = false;
         try {
-            listener.taskTriggered(task);
+            if (claimedTask.payload() != null && listener instanceof PayloadTriggerListener) {
+                ((PayloadTriggerListener) listener).taskTriggered(taskId, claimedTask.payload());
+            } else {
+                listener.taskTriggered(taskId);
+            }
         } catch (Exception e) {
-            log.error(String.format("[%s] Error during execution of task [%s]", identity.name(), task), e);
+            failed = true;
+            log.error(String.format("[%s] Error during execution of task [%s]", identity.name(), taskId), e);
+        }
+        metrics.taskExecuted(System.nanoTime() - start, failed);
+
+        if (claimedTask.status() == ClaimedTask.Status.ONCE) {
+            if (failed && retryPolicy != null) {
+                retry(claimedTask);
+            } else if (!failed) {
+                acknowledge(claimedTask);
+            }
+        }
+        if (limits.limitsInFlight(task)) {
+            releaseInFlight(task);
+        }
+    }
+
+    /**
+     * Stops counting a completed task as in flight towards the limit of its type, whether it failed or not.
+     */
+    private void releaseInFlight(String task) {
+        try {
+            driver.execute(commands -> commands.releaseInFlight(identity.keyFor(LIMIT_KEY_SUFFIX, task),
+                                                                identity.keyFor(IN_FLIGHT_BY_TYPE_KEY_SUFFIX, task),
+                                                                task, limits.typeOf(task)));
+        } catch (RuntimeException e) {
+            log.warn(String.format("[%s] Could not release task [%s], it will count as in flight until its in-flight timeout",
+                                   identity.name(), taskIdCodec.decode(task)), e);
+        }
+    }
+
+    /**
+     * Removes a leased task from the in-flight set, along with its payload which is kept until then, and forgets the
+     * failed attempts of a retried task.
+     */
+    private void acknowledge(ClaimedTask claimedTask) {
+        String task = claimedTask.taskId();
+        boolean leased = leaseDurationMillis > 0;
+        boolean retried = claimedTask.failedAttempts() > 0;
+        if (!leased && !retried) {
+            return;
+        }
+
+        try {
+            driver.executePipelined(commands -> {
+                if (leased) {
+                    commands.removeFromSet(identity.keyFor(IN_FLIGHT_KEY_SUFFIX, task), task);
+                }
+                if (leased && taskPayloads) {
+                    commands.removeAllFromHash(identity.keyFor(PAYLOAD_KEY_SUFFIX, task), singletonList(task));
+                }
+                if (retried) {
+                    commands.removeAllFromHash(identity.keyFor(ATTEMPT_KEY_SUFFIX, task), singletonList(task));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn(String.format("[%s] Could not acknowledge task [%s]%s", identity.name(), taskIdCodec.decode(task),
+                                   leased ? ", it will be executed again once its lease expires" : ""), e);
+        }
+    }
+
+    /**
+     * Schedules a failed task again after a backoff, or dead-letters it, atomically with its acknowledgement.
+     */
+    private void retry(ClaimedTask claimedTask) {
+        String task = claimedTask.taskId();
+        byte[] payload = claimedTask.payload() != null && claimedTask.payload().length > 0 ? claimedTask.payload() : null;
+        try {
+            String outcome = driver.fetch(commands -> commands.retry(identity.retryKeys(task), task, clock.millis(),
+                                                                     retryPolicy, payload));
+            if (outcome.equals("dead")) {
+                log.warn(String.format("[%s] Task [%s] failed %s attempts and was dead-lettered", identity.name(),
+                                       taskIdCodec.decode(task), retryPolicy.maxAttempts()));
+            } else if (!outcome.equals("scheduled") && wakeupNotifications) {
+                driver.execute(commands -> commands.publish(identity.wakeupChannel(), outcome));
+            }
+        } catch (RuntimeException e) {
+            log.warn(String.format("[%s] Could not schedule a retry of task [%s]", identity.name(),
+                                   taskIdCodec.decode(task)), e);
         }
     }
 }
@@ -0,0 +1,72 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How tasks whose listener failed are retried (see {@link RedisTaskScheduler#setRetryPolicy(RetryPolicy)}). The number
+ * of failed attempts of each task is kept in Redis, so that retries are shared by all instances of a scheduler.
+ */
+public final class RetryPolicy {
+
+    private static final double DEFAULT_JITTER = 0.5;
+
+    private final int maxAttempts;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double jitter;
+
+    private RetryPolicy(int maxAttempts, long initialDelayMillis, long maxDelayMillis, double jitter) {
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.jitter = jitter;
+    }
+
+    /**
+     * @param maxAttempts  maximum number of executions of a task, including the first one, after which the task is
+     *                     dead-lettered.
+     * @param initialDelay delay before the first retry, doubled after each failed retry.
+     * @param maxDelay     maximum delay between two attempts.
+     * @return a policy retrying tasks after an exponential backoff, with a jitter of 50% (see {@link #withJitter(double)}).
+     */
+    public static RetryPolicy exponentialBackoff(int maxAttempts, Duration initialDelay, Duration maxDelay) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Maximum number of attempts must be at least 1.");
+        }
+        if (initialDelay.isNegative() || maxDelay.compareTo(initialDelay) < 0) {
+            throw new IllegalArgumentException("Maximum delay must be at least the initial delay, which must not be negative.");
+        }
+        return new RetryPolicy(maxAttempts, initialDelay.toMillis(), maxDelay.toMillis(), DEFAULT_JITTER);
+    }
+
+    /**
+     * @param jitter maximum fraction by which each delay is randomly shortened, from 0 to 1, so that tasks which failed
+     *               together are not all retried at once.
+     */
+    public RetryPolicy withJitter(double jitter) {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1.");
+        }
+        return new RetryPolicy(maxAttempts, initialDelayMillis, maxDelayMillis, jitter);
+    }
+
+    int maxAttempts() {
+        return maxAttempts;
+    }
+
+    long initialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    long maxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * @return a random factor to apply to the next delay.
+     */
+    double jitterFactor() {
+        return 1 - jitter * ThreadLocalRandom.current().nextDouble();
+    }
+}
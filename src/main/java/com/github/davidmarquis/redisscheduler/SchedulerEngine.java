@@ -0,0 +1,272 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls many schedulers from a single probe thread and a shared pool of pollers, instead of one polling thread per
+ * scheduler (see {@link RedisTaskScheduler#setEngine(SchedulerEngine)}). The probe looks up the earliest trigger time
+ * of every hosted scheduler with a single Redis round trip, and only hands the schedulers with due tasks over to a
+ * poller, which claims and dispatches their tasks. The probe then waits until the earliest trigger time of all
+ * schedulers. Each scheduler is also polled at least once per polling delay, so that its leases are reaped and its
+ * metrics sampled.
+ * <p>
+ * The keys of all hosted schedulers are probed with Lua scripts, so they must all live on the same Redis node: the
+ * engine cannot be used with Redis Cluster.
+ */
+public class SchedulerEngine implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskScheduler.class);
+
+    private static final int MAX_KEYS_PER_PROBE = 1000;
+    private static final int MAX_POLLS_PER_HANDOVER = 100;
+
+    private final RedisDriver driver;
+    private final List<Hosted> schedulers = new CopyOnWriteArrayList<>();
+
+    private String name = "scheduler-engine";
+    private Executor pollerExecutor;
+    private ExecutorService ownedPollerExecutor;
+    private int pollerThreads = 4;
+    private int minProbeDelayMillis = 10;
+    private int maxProbeDelayMillis = 1000;
+
+    private Thread probeThread;
+    private volatile boolean stopRequested = false;
+    private final WakeUpSignal wakeUpSignal = new WakeUpSignal();
+
+    public SchedulerEngine(RedisDriver driver) {
+        this.driver = driver;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (pollerExecutor == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            ownedPollerExecutor = Executors.newFixedThreadPool(pollerThreads, runnable -> {
+                Thread thread = new Thread(runnable, name + "-poller-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            pollerExecutor = ownedPollerExecutor;
+        }
+
+        probeThread = new Thread(this::probeUntilStopped, name + "-probe");
+        probeThread.setDaemon(true);
+        probeThread.start();
+
+        log.info(String.format("[%s] Started scheduler engine", name));
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        stopRequested = true;
+        wakeUpSignal.stop();
+        if (ownedPollerExecutor != null) {
+            ownedPollerExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Customizes the name of the engine threads in logs.
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Number of threads polling the schedulers with due tasks, owned by the engine. Ignored when an executor is
+     * provided with {@link #setPollerExecutor(Executor)}.
+     */
+    public void setPollerThreads(int pollerThreads) {
+        if (pollerThreads < 1) {
+            throw new IllegalArgumentException("Number of poller threads must be at least 1.");
+        }
+        this.pollerThreads = pollerThreads;
+    }
+
+    /**
+     * Executor on which schedulers with due tasks are polled, instead of a fixed pool of threads owned by the engine.
+     * Any executor can be provided, including a virtual-thread-per-task executor on recent JDKs. The provided executor
+     * is not shut down by the engine.
+     */
+    public void setPollerExecutor(Executor pollerExecutor) {
+        this.pollerExecutor = pollerExecutor;
+    }
+
+    /**
+     * Minimum time between two probes, which bounds the load on Redis when tasks are due all the time.
+     */
+    public void setMinProbeDelayMillis(int minProbeDelayMillis) {
+        this.minProbeDelayMillis = minProbeDelayMillis;
+    }
+
+    /**
+     * Maximum time between two probes. Tasks scheduled by other processes are noticed within this delay, or right away
+     * when the schedulers enable wakeup notifications.
+     */
+    public void setMaxProbeDelayMillis(int maxProbeDelayMillis) {
+        if (maxProbeDelayMillis < 1) {
+            throw new IllegalArgumentException("Maximum probe delay must be at least 1 millisecond.");
+        }
+        this.maxProbeDelayMillis = maxProbeDelayMillis;
+    }
+
+    void register(RedisTaskScheduler scheduler) {
+        schedulers.add(new Hosted(scheduler));
+        wakeUp();
+    }
+
+    void unregister(RedisTaskScheduler scheduler) {
+        schedulers.removeIf(hosted -> hosted.scheduler == scheduler);
+    }
+
+    /**
+     * Interrupts the wait between two probes, for example when an earlier task gets scheduled.
+     */
+    void wakeUp() {
+        wakeUpSignal.wakeUp();
+    }
+
+    private void probeUntilStopped() {
+        while (!stopRequested) {
+            wakeUpSignal.clear();
+
+            long delay = maxProbeDelayMillis;
+            try {
+                delay = probe();
+            } catch (RuntimeException e) {
+                log.warn(String.format("[%s] Could not probe scheduled tasks, probing again in %sms", name, delay), e);
+            }
+
+            try {
+                wakeUpSignal.awaitWakeUp(Math.max(minProbeDelayMillis, delay));
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        log.info(String.format("[%s] Scheduler engine stopped", name));
+    }
+
+    /**
+     * Hands the schedulers with due tasks over to pollers.
+     *
+     * @return how long to wait until the next probe.
+     */
+    private long probe() {
+        List<Hosted> idleSchedulers = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (Hosted hosted : schedulers) {
+            // a saturated scheduler wakes the probe up once its executor has room for more tasks.
+            if (!hosted.polling.get() && !hosted.scheduler.isSaturated()) {
+                hosted.keys = hosted.scheduler.probeKeys();
+                idleSchedulers.add(hosted);
+                keys.addAll(hosted.keys);
+            }
+        }
+        List<Optional<Long>> firstScores = firstScores(keys);
+
+        long delay = maxProbeDelayMillis;
+        int keyIndex = 0;
+        for (Hosted hosted : idleSchedulers) {
+            long now = hosted.scheduler.nowMillis();
+            long nextPollTime = hosted.lastPollMillis + hosted.scheduler.maxPollingDelayMillis();
+            // tasks due by the last poll which claimed nothing are held back by their limits: they are only polled
+            // again once the polling delay has elapsed, or once a task due by then is scheduled.
+            long heldBack = hosted.scheduler.heldBackMillis();
+            for (int i = 0; i < hosted.keys.size(); i++, keyIndex++) {
+                nextPollTime = Math.min(nextPollTime, firstScores.get(keyIndex)
+                                                                 .filter(score -> score > heldBack)
+                                                                 .orElse(Long.MAX_VALUE));
+            }
+
+            if (hosted.scheduler.circuitBreaker().state() == CircuitState.OPEN) {
+                delay = Math.min(delay, hosted.scheduler.circuitBreaker().remainingOpenMillis());
+            } else if (nextPollTime <= now) {
+                handOver(hosted);
+            } else {
+                delay = Math.min(delay, nextPollTime - now);
+            }
+        }
+        return delay;
+    }
+
+    private List<Optional<Long>> firstScores(List<String> keys) {
+        return driver.fetch(commands -> {
+            List<Optional<Long>> scores = new ArrayList<>(keys.size());
+            for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_PROBE) {
+                scores.addAll(commands.firstScores(keys.subList(from, Math.min(keys.size(), from + MAX_KEYS_PER_PROBE))));
+            }
+            return scores;
+        });
+    }
+
+    private void handOver(Hosted hosted) {
+        hosted.polling.set(true);
+        try {
+            pollerExecutor.execute(() -> poll(hosted));
+        } catch (RejectedExecutionException e) {
+            hosted.polling.set(false);
+            if (!stopRequested) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Polls a scheduler until it has no due task left or its executor is full, up to a bounded number of polls so that
+     * other schedulers get their turn, then wakes the probe up to find out when the scheduler must be polled again. The
+     * poller never waits for the executor of a scheduler, which would hold up the schedulers waiting for a poller.
+     */
+    private void poll(Hosted hosted) {
+        try {
+            for (int i = 0; i < MAX_POLLS_PER_HANDOVER && !stopRequested && !hosted.scheduler.isSaturated(); i++) {
+                boolean triggered = hosted.scheduler.triggerNextTaskIfFound(false);
+                hosted.scheduler.circuitBreaker().recordSuccess();
+                if (!triggered) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RedisConnectException e) {
+            hosted.scheduler.circuitBreaker().recordFailure();
+            hosted.scheduler.metrics().connectionRetried();
+            log.warn(String.format("[%s] Connection failure while polling scheduler [%s], retrying in %sms", name,
+                                   hosted.scheduler.name(), hosted.scheduler.circuitBreaker().remainingOpenMillis()));
+        } catch (RuntimeException e) {
+            log.warn(String.format("[%s] Error while polling scheduler [%s], polling it again on the next probe", name,
+                                   hosted.scheduler.name()), e);
+        } finally {
+            hosted.lastPollMillis = hosted.scheduler.nowMillis();
+            hosted.polling.set(false);
+            wakeUp();
+        }
+    }
+
+    private static final class Hosted {
+        final RedisTaskScheduler scheduler;
+        final AtomicBoolean polling = new AtomicBoolean();
+        volatile long lastPollMillis = Long.MIN_VALUE / 2;
+        List<String> keys;
+
+        private Hosted(RedisTaskScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+    }
+}
@@ -1,23 +1,255 @@
 package com.github.davidmarquis.redisscheduler;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 class SchedulerIdentity {
     private static final String REDIS_KEY_FORMAT = "redis-scheduler.%s";
+    private static final String REDIS_SHARD_KEY_FORMAT = "redis-scheduler.{%s.%s}";
+    private static final String WAKEUP_CHANNEL_FORMAT = "redis-scheduler.%s.wakeup";
+    private static final String MEMBERS_KEY_FORMAT = "redis-scheduler.%s.members";
+    static final String IN_FLIGHT_KEY_SUFFIX = ".inflight";
+    static final String PAYLOAD_KEY_SUFFIX = ".payloads";
+    static final String RECURRENCE_KEY_SUFFIX = ".recurrences";
+    static final String LIMIT_KEY_SUFFIX = ".limits";
+    static final String IN_FLIGHT_BY_TYPE_KEY_SUFFIX = ".limits.inflight";
+    static final String ATTEMPT_KEY_SUFFIX = ".attempts";
+    static final String DEAD_LETTER_KEY_SUFFIX = ".deadletters";
+    static final String COLD_KEY_SUFFIX = ".cold";
+    static final String BUCKET_INDEX_KEY_SUFFIX = ".buckets";
+    static final String BUCKET_KEY_PREFIX_SUFFIX = ".bucket.";
+    private static final String PRIORITY_KEY_SUFFIX_FORMAT = ".p%s";
 
     private String name;
+    private List<String> keys;
+    private int priorityLevels;
 
-    private SchedulerIdentity(String name) {
+    private SchedulerIdentity(String name, int shards, int priorityLevels) {
         this.name = name;
+        this.priorityLevels = priorityLevels;
+        this.keys = Collections.unmodifiableList(keysOf(name, shards));
+    }
+
+    /**
+     * @return the keys of all shards of this scheduler.
+     */
+    List<String> keys() {
+        return keys;
+    }
+
+    /**
+     * @return the keys derived from the key of each shard with the given suffix (one of the <code>*_KEY_SUFFIX</code>
+     * constants), in the same order as {@link #keys()}. Each key hashes to the same slot as its shard.
+     */
+    List<String> keys(String suffix) {
+        List<String> suffixedKeys = new ArrayList<>(keys.size());
+        for (int shard = 0; shard < keys.size(); shard++) {
+            suffixedKeys.add(key(shard, suffix));
+        }
+        return suffixedKeys;
+    }
+
+    /**
+     * @return the key derived from the key of the given shard with the given suffix.
+     */
+    String key(int shard, String suffix) {
+        return slotKey(keys.get(shard), suffix);
+    }
+
+    /**
+     * @return the index of the shard holding the given task.
+     */
+    int shardOf(String taskId) {
+        return Math.floorMod(taskId.hashCode(), keys.size());
+    }
+
+    /**
+     * @return the key of the shard holding the given task.
+     */
+    String keyFor(String taskId) {
+        return keys.get(shardOf(taskId));
+    }
+
+    /**
+     * @return the key derived with the given suffix from the key of the shard holding the given task.
+     */
+    String keyFor(String suffix, String taskId) {
+        return key(shardOf(taskId), suffix);
+    }
+
+    /**
+     * @return the key of the sorted set holding the tasks of the given cold bucket of a shard. The key of a bucket is
+     * its prefix followed by the number of the bucket, which is its start time divided by the duration of buckets.
+     */
+    String bucketKey(int shard, long bucket) {
+        return key(shard, BUCKET_KEY_PREFIX_SUFFIX) + bucket;
+    }
+
+    /**
+     * @return the key of the sorted set holding the tasks of the given priority in the shard of the given task. Tasks
+     * of the default priority (0) are held in the key of the shard itself.
+     */
+    String keyFor(String taskId, int priority) {
+        return priorityKey(keyFor(taskId), priority);
+    }
+
+    /**
+     * @return the keys of the sorted sets holding the tasks of each priority of a shard, indexed by priority. Each key
+     * hashes to the same slot as its shard.
+     */
+    List<String> priorityKeys(int shard) {
+        List<String> priorityKeys = new ArrayList<>(priorityLevels);
+        for (int priority = 0; priority < priorityLevels; priority++) {
+            priorityKeys.add(priorityKey(keys.get(shard), priority));
+        }
+        return priorityKeys;
+    }
+
+    /**
+     * @return the keys of the sorted sets holding the tasks of all priorities of all shards.
+     */
+    List<String> allPriorityKeys() {
+        List<String> allKeys = new ArrayList<>(keys.size() * priorityLevels);
+        for (int shard = 0; shard < keys.size(); shard++) {
+            allKeys.addAll(priorityKeys(shard));
+        }
+        return allKeys;
+    }
+
+    /**
+     * @return all keys of a shard, in the order expected by the claim script.
+     */
+    List<String> claimKeys(int shard) {
+        List<String> claimKeys = new ArrayList<>(Arrays.asList(keys.get(shard), key(shard, IN_FLIGHT_KEY_SUFFIX),
+                                                               key(shard, PAYLOAD_KEY_SUFFIX), key(shard, RECURRENCE_KEY_SUFFIX),
+                                                               key(shard, LIMIT_KEY_SUFFIX), key(shard, IN_FLIGHT_BY_TYPE_KEY_SUFFIX),
+                                                               key(shard, ATTEMPT_KEY_SUFFIX)));
+        List<String> priorityKeys = priorityKeys(shard);
+        claimKeys.addAll(priorityKeys.subList(1, priorityKeys.size()));
+        return claimKeys;
+    }
+
+    /**
+     * @return the keys of a shard, in the order expected by the requeue script.
+     */
+    List<String> requeueKeys(int shard) {
+        List<String> requeueKeys = new ArrayList<>(Arrays.asList(key(shard, IN_FLIGHT_KEY_SUFFIX), keys.get(shard),
+                                                                 key(shard, COLD_KEY_SUFFIX)));
+        List<String> priorityKeys = priorityKeys(shard);
+        requeueKeys.addAll(priorityKeys.subList(1, priorityKeys.size()));
+        return requeueKeys;
+    }
+
+    /**
+     * @return all keys of the shard of the given task, in the order expected by the retry script.
+     */
+    List<String> retryKeys(String taskId) {
+        List<String> retryKeys = new ArrayList<>(Arrays.asList(keyFor(taskId), keyFor(IN_FLIGHT_KEY_SUFFIX, taskId),
+                                                               keyFor(PAYLOAD_KEY_SUFFIX, taskId), keyFor(ATTEMPT_KEY_SUFFIX, taskId),
+                                                               keyFor(DEAD_LETTER_KEY_SUFFIX, taskId), keyFor(COLD_KEY_SUFFIX, taskId)));
+        for (int priority = 1; priority < priorityLevels; priority++) {
+            retryKeys.add(keyFor(taskId, priority));
+        }
+        return retryKeys;
+    }
+
+    /**
+     * @return the keys of a shard, in the order expected by the dead-letter replay script.
+     */
+    List<String> replayKeys(int shard) {
+        List<String> replayKeys = new ArrayList<>(Arrays.asList(keys.get(shard), key(shard, ATTEMPT_KEY_SUFFIX),
+                                                                key(shard, DEAD_LETTER_KEY_SUFFIX), key(shard, COLD_KEY_SUFFIX)));
+        List<String> priorityKeys = priorityKeys(shard);
+        replayKeys.addAll(priorityKeys.subList(1, priorityKeys.size()));
+        return replayKeys;
+    }
+
+    /**
+     * @return the keys of the shard of the given task, in the order expected by the tiered scheduling script.
+     */
+    List<String> tieredKeys(String taskId) {
+        List<String> tieredKeys = new ArrayList<>(Arrays.asList(keyFor(taskId), keyFor(COLD_KEY_SUFFIX, taskId),
+                                                                keyFor(BUCKET_INDEX_KEY_SUFFIX, taskId)));
+        for (int priority = 1; priority < priorityLevels; priority++) {
+            tieredKeys.add(keyFor(taskId, priority));
+        }
+        return tieredKeys;
+    }
+
+    String wakeupChannel() {
+        return String.format(WAKEUP_CHANNEL_FORMAT, name);
     }
 
-    String key() {
-        return String.format(REDIS_KEY_FORMAT, name);
+    /**
+     * @return the key of the sorted set holding the live instances of this scheduler, when shards are split between
+     * instances.
+     */
+    String membersKey() {
+        return String.format(MEMBERS_KEY_FORMAT, name);
     }
 
     String name() {
         return name;
     }
 
+    int shards() {
+        return keys.size();
+    }
+
+    int priorityLevels() {
+        return priorityLevels;
+    }
+
+    SchedulerIdentity withShards(int shards) {
+        return new SchedulerIdentity(name, shards, priorityLevels);
+    }
+
+    SchedulerIdentity withPriorityLevels(int priorityLevels) {
+        return new SchedulerIdentity(name, keys.size(), priorityLevels);
+    }
+
+    SchedulerIdentity named(String name) {
+        return new SchedulerIdentity(name, keys.size(), priorityLevels);
+    }
+
     static SchedulerIdentity of(String name) {
-        return new SchedulerIdentity(name);
+        return new SchedulerIdentity(name, 1, 1);
+    }
+
+    /**
+     * An unsharded scheduler keeps its historical key. Shard keys carry a hash tag specific to each shard, so that
+     * shards are spread across the nodes of a Redis Cluster.
+     */
+    private static List<String> keysOf(String name, int shards) {
+        if (shards == 1) {
+            return Collections.singletonList(String.format(REDIS_KEY_FORMAT, name));
+        }
+
+        List<String> keys = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            keys.add(String.format(REDIS_SHARD_KEY_FORMAT, name, shard));
+        }
+        return keys;
+    }
+
+    private static String priorityKey(String key, int priority) {
+        return priority == 0 ? key : slotKey(key, String.format(PRIORITY_KEY_SUFFIX_FORMAT, priority));
+    }
+
+    /**
+     * Derives a key from the key of a shard, so that both hash to the same slot of a Redis Cluster and can be used by
+     * the same script. Shard keys carry a hash tag, kept by appending the suffix. The historical unsharded key has none,
+     * and is used as the hash tag of its derived keys instead: <code>{redis-scheduler.&lt;name&gt;}.inflight</code>
+     * hashes exactly like <code>redis-scheduler.&lt;name&gt;</code>.
+     */
+    private static String slotKey(String key, String suffix) {
+        return hasHashTag(key) ? key + suffix : "{" + key + "}" + suffix;
+    }
+
+    private static boolean hasHashTag(String key) {
+        int start = key.indexOf('{');
+        return start >= 0 && key.indexOf('}', start) > start + 1;
     }
 }
@@ -0,0 +1,52 @@
+package com.github.davidmarquis.redisscheduler;
+
+/**
+ * Callback interface that receives measurements of the polling and trigger pipeline of a scheduler. All methods do
+ * nothing by default, so that implementations only need to override the measurements they are interested in.
+ * Implementations must be thread-safe, as tasks may be executed from multiple threads.
+ */
+public interface SchedulerMetrics {
+
+    SchedulerMetrics NONE = new SchedulerMetrics() {};
+
+    /**
+     * Called after each poll that reached Redis.
+     *
+     * @param claimedTasks   the number of tasks claimed by the poll, zero for an empty poll.
+     * @param roundTripNanos the time spent claiming tasks from Redis.
+     */
+    default void polled(int claimedTasks, long roundTripNanos) {
+    }
+
+    /**
+     * Called for each task claimed by a poll.
+     *
+     * @param latenessMillis how long ago the task was due when it was claimed.
+     */
+    default void taskClaimed(long latenessMillis) {
+    }
+
+    /**
+     * Called once the listener has been called for a task.
+     *
+     * @param durationNanos the time spent in the listener.
+     * @param failed        whether the listener threw an exception.
+     */
+    default void taskExecuted(long durationNanos, boolean failed) {
+    }
+
+    /**
+     * Called when polling failed because of a Redis connection error, and will be retried.
+     */
+    default void connectionRetried() {
+    }
+
+    /**
+     * Called periodically with the state of the scheduled tasks in Redis.
+     *
+     * @param size           the number of scheduled tasks, due or not.
+     * @param latenessMillis how long ago the oldest task was due, zero if no task is due.
+     */
+    default void backlogSampled(long size, long latenessMillis) {
+    }
+}
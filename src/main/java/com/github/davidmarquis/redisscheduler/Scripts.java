@@ -0,0 +1,27 @@
+package com.github.davidmarquis.redisscheduler;
+
+/**
+ * Lua scripts used by the scheduler. Each script is executed atomically by Redis, in a single round trip.
+ */
+final class Scripts {
+
+    static final LuaScript CLAIM = LuaScript.load("claim");
+    static final LuaScript FIRST_SCORES = LuaScript.load("first-scores");
+    static final LuaScript PEEK_BY_SCORE = LuaScript.load("peek-by-score");
+    static final LuaScript REQUEUE_EXPIRED = LuaScript.load("requeue-expired");
+    static final LuaScript SCHEDULE_WITH_PAYLOAD = LuaScript.load("schedule-with-payload");
+    static final LuaScript SCHEDULE_RECURRING = LuaScript.load("schedule-recurring");
+    static final LuaScript ADVANCE_RECURRENCES = LuaScript.load("advance-recurrences");
+    static final LuaScript RELEASE_IN_FLIGHT = LuaScript.load("release-in-flight");
+    static final LuaScript RETRY = LuaScript.load("retry");
+    static final LuaScript REPLAY_DEAD_LETTERS = LuaScript.load("replay-dead-letters");
+    static final LuaScript SCHEDULE_TIERED = LuaScript.load("schedule-tiered");
+    static final LuaScript PROMOTE_BUCKETS = LuaScript.load("promote-buckets");
+    static final LuaScript HEARTBEAT = LuaScript.load("heartbeat");
+    static final LuaScript REMOVE_FROM_HASH = LuaScript.load("remove-from-hash");
+    static final LuaScript COUNT = LuaScript.load("count");
+    static final LuaScript PUBLISH = LuaScript.load("publish");
+
+    private Scripts() {
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Splits the shards of a scheduler between its live instances, so that each instance only polls the shards it owns.
+ * Instances register a heartbeat in Redis at a fixed interval, and are forgotten once they missed a few heartbeats.
+ * Each instance derives the same assignment from the same sorted list of live instances: shard <code>i</code> is owned
+ * by the instance at index <code>i mod n</code>. Ownership is rebalanced on each heartbeat, so during a rebalance two
+ * instances may briefly poll the same shard, which is safe as tasks are claimed atomically.
+ */
+class ShardOwnership {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskScheduler.class);
+
+    private static final int MISSED_HEARTBEATS_BEFORE_EXPIRY = 3;
+
+    private final RedisDriver driver;
+    private final SchedulerIdentity identity;
+    private final Clock clock;
+    private final int heartbeatIntervalMillis;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private volatile int[] ownedShards;
+    private ScheduledExecutorService heartbeats;
+
+    ShardOwnership(RedisDriver driver, SchedulerIdentity identity, Clock clock, int heartbeatIntervalMillis) {
+        this.driver = driver;
+        this.identity = identity;
+        this.clock = clock;
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+        this.ownedShards = IntStream.range(0, identity.shards()).toArray();
+    }
+
+    /**
+     * Registers this instance right away, so that shards are split before the first poll, and then at each interval.
+     */
+    void start() {
+        heartbeat();
+
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, identity.name() + "-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMillis, heartbeatIntervalMillis,
+                                          TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Unregisters this instance, so that other instances take its shards over on their next heartbeat.
+     */
+    void close() {
+        if (heartbeats != null) {
+            heartbeats.shutdownNow();
+        }
+        try {
+            driver.execute(commands -> commands.removeFromSet(identity.membersKey(), instanceId));
+        } catch (RuntimeException e) {
+            log.warn(String.format("[%s] Could not unregister instance, its shards will be taken over once its heartbeat expires",
+                                   identity.name()), e);
+        }
+    }
+
+    /**
+     * @return the shards this instance must poll. All shards are owned until the first heartbeat succeeds.
+     */
+    int[] ownedShards() {
+        return ownedShards;
+    }
+
+    private void heartbeat() {
+        long now = clock.millis();
+        long expiry = now + (long) heartbeatIntervalMillis * MISSED_HEARTBEATS_BEFORE_EXPIRY;
+        try {
+            List<String> members = driver.fetch(commands -> commands.heartbeat(identity.membersKey(), instanceId, now, expiry));
+
+            int[] shards = assign(members, instanceId, identity.shards());
+            if (!Arrays.equals(shards, ownedShards)) {
+                log.info(String.format("[%s] Now polling shards %s out of %s, split between %s instances",
+                                       identity.name(), Arrays.toString(shards), identity.shards(), members.size()));
+                ownedShards = shards;
+            }
+        } catch (RuntimeException e) {
+            // ownership is kept as is until Redis is reachable again.
+            log.warn(String.format("[%s] Could not register heartbeat", identity.name()), e);
+        }
+    }
+
+    /**
+     * @return the shards owned by the given instance, when split between the given live instances.
+     */
+    static int[] assign(List<String> members, String instanceId, int shards) {
+        List<String> sortedMembers = new ArrayList<>(members);
+        Collections.sort(sortedMembers);
+
+        int index = sortedMembers.indexOf(instanceId);
+        if (index < 0) {
+            return IntStream.range(0, shards).toArray();
+        }
+        return IntStream.range(0, shards).filter(shard -> shard % sortedMembers.size() == index).toArray();
+    }
+}
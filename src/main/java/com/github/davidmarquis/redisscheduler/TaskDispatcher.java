@@ -0,0 +1,107 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Hands claimed tasks over to an executor, while bounding the number of tasks that were claimed but did not complete yet.
+ * The polling thread reserves slots before claiming tasks from Redis, so that it stops claiming when the executor cannot
+ * keep up: tasks that cannot be handled yet stay in Redis, where other instances can claim them.
+ */
+class TaskDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskScheduler.class);
+
+    private final Executor executor;
+    private final int maxPendingTasks;
+    private final Runnable roomListener;
+
+    private int pendingTasks = 0;
+    private boolean closed = false;
+
+    TaskDispatcher(Executor executor, int maxPendingTasks) {
+        this(executor, maxPendingTasks, () -> {});
+    }
+
+    /**
+     * @param roomListener called whenever a slot gets released while all slots were reserved, so that a poller which
+     *                     could not reserve any slot with {@link #tryReserve(int)} knows when to try again.
+     */
+    TaskDispatcher(Executor executor, int maxPendingTasks, Runnable roomListener) {
+        this.executor = executor;
+        this.maxPendingTasks = maxPendingTasks;
+        this.roomListener = roomListener;
+    }
+
+    /**
+     * Waits until at least one slot is available, then reserves as many slots as possible up to <code>max</code>.
+     *
+     * @return the number of reserved slots, or 0 if the dispatcher was closed while waiting.
+     */
+    synchronized int reserve(int max) throws InterruptedException {
+        while (!closed && pendingTasks >= maxPendingTasks) {
+            wait();
+        }
+        return tryReserve(max);
+    }
+
+    /**
+     * Reserves as many slots as possible up to <code>max</code>, without waiting.
+     *
+     * @return the number of reserved slots, or 0 if all slots are reserved or the dispatcher was closed.
+     */
+    synchronized int tryReserve(int max) {
+        if (closed) {
+            return 0;
+        }
+
+        int slots = Math.max(0, Math.min(max, maxPendingTasks - pendingTasks));
+        pendingTasks += slots;
+        return slots;
+    }
+
+    synchronized boolean isFull() {
+        return pendingTasks >= maxPendingTasks;
+    }
+
+    void release(int slots) {
+        boolean roomMade;
+        synchronized (this) {
+            roomMade = slots > 0 && pendingTasks >= maxPendingTasks && pendingTasks - slots < maxPendingTasks;
+            pendingTasks -= slots;
+            notifyAll();
+        }
+        if (roomMade) {
+            roomListener.run();
+        }
+    }
+
+    /**
+     * Executes a task for which a slot was previously reserved. The slot is released once the task completes. If the
+     * executor rejects the task, it is run on the calling thread so that a claimed task is never lost.
+     */
+    void dispatch(Runnable task) {
+        Runnable releasingTask = () -> {
+            try {
+                task.run();
+            } finally {
+                release(1);
+            }
+        };
+
+        try {
+            executor.execute(releasingTask);
+        } catch (RejectedExecutionException e) {
+            log.warn("Task executor rejected a claimed task, running it on the polling thread instead.");
+            releasingTask.run();
+        }
+    }
+
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+}
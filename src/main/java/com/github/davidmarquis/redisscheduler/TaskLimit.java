@@ -0,0 +1,71 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.time.Duration;
+
+/**
+ * Limits how often tasks of the same type are claimed, and how many of them run at the same time, across all
+ * instances of a scheduler (see {@link RedisTaskScheduler#setTaskLimit(String, TaskLimit)}). Tasks over a limit are
+ * not claimed: they stay scheduled until the limit allows claiming them.
+ */
+public final class TaskLimit {
+
+    private final int permits;
+    private final long periodMillis;
+    private final int maxInFlight;
+
+    private TaskLimit(int permits, long periodMillis, int maxInFlight) {
+        this.permits = permits;
+        this.periodMillis = periodMillis;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * @return a limit claiming at most <code>permits</code> tasks per period, in bursts of up to <code>permits</code>
+     * tasks (token bucket).
+     */
+    public static TaskLimit rate(int permits, Duration period) {
+        return new TaskLimit(0, 0, 0).withRate(permits, period);
+    }
+
+    /**
+     * @return a limit claiming tasks only while less than <code>maxInFlight</code> claimed tasks have not completed.
+     */
+    public static TaskLimit maxInFlight(int maxInFlight) {
+        return new TaskLimit(0, 0, 0).withMaxInFlight(maxInFlight);
+    }
+
+    public TaskLimit withRate(int permits, Duration period) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Number of permits must be at least 1.");
+        }
+        if (period.toMillis() < 1) {
+            throw new IllegalArgumentException("Period must be at least 1 millisecond.");
+        }
+        return new TaskLimit(permits, period.toMillis(), maxInFlight);
+    }
+
+    public TaskLimit withMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Maximum number of tasks in flight must be at least 1.");
+        }
+        return new TaskLimit(permits, periodMillis, maxInFlight);
+    }
+
+    /**
+     * @return the number of tasks claimed per period, or 0 if the rate is not limited.
+     */
+    int permits() {
+        return permits;
+    }
+
+    long periodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * @return the maximum number of tasks in flight, or 0 if not limited.
+     */
+    int maxInFlight() {
+        return maxInFlight;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits of the task types of a scheduler, as passed to the claim script. The type of a task is the prefix of its ID
+ * before the first separator: tasks without a separator have no type and are never limited. Each shard enforces an
+ * equal share of each limit, as the state of limits is kept in each shard along with its tasks. Shares of a maximum
+ * number of tasks in flight are rounded down, so that shards never run more tasks than the maximum together.
+ */
+class TaskLimits {
+
+    static final TaskLimits NONE = new TaskLimits(Collections.emptyMap(), ":", 1, 0);
+
+    private final Map<String, TaskLimit> limitsByType;
+    private final String separator;
+    private final int shards;
+    private final int inFlightTimeoutMillis;
+
+    TaskLimits(Map<String, TaskLimit> limitsByType, String separator, int shards, int inFlightTimeoutMillis) {
+        limitsByType.forEach((type, limit) -> {
+            if (limit.maxInFlight() > 0 && limit.maxInFlight() < shards) {
+                throw new IllegalStateException(String.format(
+                        "Maximum number of [%s] tasks in flight (%s) must be at least the number of shards (%s), as each shard enforces an equal share of it.",
+                        type, limit.maxInFlight(), shards));
+            }
+        });
+        this.limitsByType = Collections.unmodifiableMap(new LinkedHashMap<>(limitsByType));
+        this.separator = separator;
+        this.shards = shards;
+        this.inFlightTimeoutMillis = inFlightTimeoutMillis;
+    }
+
+    /**
+     * @return the type of the given task, or <code>null</code> if it has none.
+     */
+    String typeOf(String taskId) {
+        int position = taskId.indexOf(separator);
+        return position >= 0 ? taskId.substring(0, position) : null;
+    }
+
+    /**
+     * @return whether the given task is counted as in flight once claimed, until its completion is reported.
+     */
+    boolean limitsInFlight(String taskId) {
+        String type = typeOf(taskId);
+        return type != null && limitsByType.containsKey(type) && limitsByType.get(type).maxInFlight() > 0;
+    }
+
+    /**
+     * @return the arguments of the claim script describing the limits, in the order it expects them.
+     */
+    List<String> claimArgs(long now) {
+        List<String> args = new ArrayList<>(3 + limitsByType.size() * 4);
+        args.add(String.valueOf(limitsByType.size()));
+        args.add(separator);
+        args.add(String.valueOf(now + inFlightTimeoutMillis));
+        limitsByType.forEach((type, limit) -> {
+            double permitsPerShard = (double) limit.permits() / shards;
+            args.add(type);
+            args.add(String.valueOf(limit.permits() > 0 ? Math.max(1, permitsPerShard) : 0));
+            args.add(String.valueOf(limit.permits() > 0 ? permitsPerShard / limit.periodMillis() : 0));
+            args.add(String.valueOf(limit.maxInFlight() / shards));
+        });
+        return args;
+    }
+}
@@ -1,5 +1,15 @@
 package com.github.davidmarquis.redisscheduler;
 
 public interface TaskRunner {
-    boolean triggerNextTaskIfFound();
+
+    int DEFAULT_POLLING_DELAY_MILLIS = 10000;
+
+    boolean triggerNextTaskIfFound() throws InterruptedException;
+
+    /**
+     * @return how long to wait before polling again, once no task was found. Defaults to the default polling delay.
+     */
+    default long nextPollDelayMillis() {
+        return DEFAULT_POLLING_DELAY_MILLIS;
+    }
 }
@@ -2,6 +2,9 @@ package com.github.davidmarquis.redisscheduler;
 
 import java.io.Closeable;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Schedules arbitrary tasks in the future.
@@ -25,6 +28,50 @@ public interface TaskScheduler extends Closeable {
      */
     void scheduleAt(String taskId, Instant trigger);
 
+    /**
+     * Schedules a task for future execution at the given priority. When many tasks are due at once, tasks of higher
+     * priorities are triggered first. Scheduling a task again at another priority moves it to that priority.
+     *
+     * @param priority from 0, the default priority, up to the number of priority levels of the scheduler minus one.
+     * @see #scheduleAt(String, Instant)
+     */
+    void scheduleAt(String taskId, Instant trigger, int priority);
+
+    /**
+     * Schedules a task for future execution along with a payload, which is handed to the listener when the task is
+     * triggered. The task and its payload are stored atomically.
+     *
+     * @param payload arbitrary bytes, see {@link PayloadCodec} to convert objects to bytes.
+     * @see #scheduleAt(String, Instant)
+     * @see PayloadTriggerListener
+     */
+    void scheduleAt(String taskId, Instant trigger, byte[] payload);
+
+    /**
+     * Schedules a task to be triggered repeatedly, starting at the first occurrence of the given recurrence after now,
+     * until it is unscheduled. Each occurrence is triggered at most once. Scheduling the same task again replaces its
+     * recurrence.
+     *
+     * @see Recurrence
+     */
+    void scheduleRecurring(String taskId, Recurrence recurrence);
+
+    /**
+     * Schedules a task for future execution without blocking the calling thread, when supported by the driver.
+     *
+     * @return a stage that completes once the task is scheduled.
+     * @see #scheduleAt(String, Instant)
+     */
+    CompletionStage<Void> scheduleAtAsync(String taskId, Instant trigger);
+
+    /**
+     * Schedules many tasks for future execution, using as few round trips to Redis as possible. This is equivalent to
+     * calling {@link #scheduleAt(String, Instant)} for each task, except that tasks are not all scheduled atomically.
+     *
+     * @param triggerTimes the time at which each task must be executed, by task identifier.
+     */
+    void scheduleAll(Map<String, Instant> triggerTimes);
+
     /**
      * Removes all currently scheduled tasks from the scheduler.
      */
@@ -37,4 +84,45 @@ public interface TaskScheduler extends Closeable {
      * @param taskId The task ID to remove.
      */
     void unschedule(String taskId);
+
+    /**
+     * Removes a specific task from the scheduler without blocking the calling thread, when supported by the driver.
+     *
+     * @return a stage that completes once the task is removed.
+     * @see #unschedule(String)
+     */
+    CompletionStage<Void> unscheduleAsync(String taskId);
+
+    /**
+     * Removes many tasks from the scheduler, using as few round trips to Redis as possible.
+     *
+     * @param taskIds The task IDs to remove.
+     */
+    void unscheduleAll(Collection<String> taskIds);
+
+    /**
+     * @return up to <code>limit</code> tasks which failed all their attempts, with the time of their last failure,
+     * oldest first. Tasks are only dead-lettered when a retry policy is set.
+     */
+    Map<String, Instant> deadLetters(int limit);
+
+    /**
+     * @return the number of tasks which failed all their attempts.
+     */
+    long deadLetterCount();
+
+    /**
+     * Schedules the given dead-lettered tasks again for immediate execution, with all their attempts. Tasks which are
+     * not dead-lettered are ignored.
+     *
+     * @return the number of tasks scheduled again.
+     */
+    int replayDeadLetters(Collection<String> taskIds);
+
+    /**
+     * Schedules all dead-lettered tasks again for immediate execution, with all their attempts.
+     *
+     * @return the number of tasks scheduled again.
+     */
+    int replayAllDeadLetters();
 }
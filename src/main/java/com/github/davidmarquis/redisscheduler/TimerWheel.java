@@ -0,0 +1,114 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hashed timer wheel with a tick of one millisecond, holding items due within a bounded span of time. Adding an item
+ * and expiring due items cost O(1) per item, and the next occupied slot is found by scanning a bit set 64 slots at a
+ * time. Not thread-safe.
+ */
+class TimerWheel<T> {
+
+    private final List<List<T>> slots;
+    private final long[] times;
+    private final BitSet occupied;
+    private final int mask;
+
+    private long cursorMillis;
+    private int size = 0;
+
+    /**
+     * @param spanMillis items must be due less than this many milliseconds after the cursor.
+     */
+    TimerWheel(int spanMillis, long startMillis) {
+        int slotCount = Integer.highestOneBit(Math.max(1, spanMillis)) << 1;
+        this.slots = new ArrayList<>(Collections.nCopies(slotCount, null));
+        this.times = new long[slotCount];
+        this.occupied = new BitSet(slotCount);
+        this.mask = slotCount - 1;
+        this.cursorMillis = startMillis;
+    }
+
+    /**
+     * Adds an item due at the given time. Items already due are added to the current slot.
+     *
+     * @return <code>false</code> if the item is due beyond the span of the wheel, in which case it is not added.
+     */
+    boolean add(T item, long timeMillis) {
+        long time = Math.max(timeMillis, cursorMillis);
+        if (time - cursorMillis > mask) {
+            return false;
+        }
+
+        int slot = (int) (time & mask);
+        if (slots.get(slot) == null) {
+            slots.set(slot, new ArrayList<>());
+        }
+        slots.get(slot).add(item);
+        times[slot] = time;
+        occupied.set(slot);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes and returns up to <code>max</code> items due at or before the given time, in the order of their due
+     * time. The cursor then moves to the given time, unless due items are left.
+     */
+    List<T> expire(long nowMillis, int max) {
+        List<T> expired = new ArrayList<>();
+        while (size > 0 && expired.size() < max) {
+            int slot = nextOccupiedSlot();
+            if (times[slot] > nowMillis) {
+                break;
+            }
+            cursorMillis = times[slot];
+
+            List<T> items = slots.get(slot);
+            int taken = Math.min(items.size(), max - expired.size());
+            List<T> due = items.subList(0, taken);
+            expired.addAll(due);
+            due.clear();
+            size -= taken;
+            if (items.isEmpty()) {
+                occupied.clear(slot);
+            }
+        }
+
+        if (size == 0 || nextTimeMillis() > nowMillis) {
+            cursorMillis = Math.max(cursorMillis, nowMillis);
+        }
+        return expired;
+    }
+
+    /**
+     * @return the due time of the earliest item, or {@link Long#MAX_VALUE} if the wheel is empty.
+     */
+    long nextTimeMillis() {
+        return size == 0 ? Long.MAX_VALUE : times[nextOccupiedSlot()];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all items, and moves the cursor to the given time.
+     */
+    void clear(long startMillis) {
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+            slots.get(slot).clear();
+        }
+        occupied.clear();
+        size = 0;
+        cursorMillis = startMillis;
+    }
+
+    private int nextOccupiedSlot() {
+        int slot = occupied.nextSetBit((int) (cursorMillis & mask));
+        return slot >= 0 ? slot : occupied.nextSetBit(0);
+    }
+}
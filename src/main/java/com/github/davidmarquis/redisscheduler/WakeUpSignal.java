@@ -0,0 +1,51 @@
+package com.github.davidmarquis.redisscheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets a thread wait between two polls until another thread wakes it up. A wakeup requested while the thread is not
+ * waiting cuts its next wait short, unless cleared before. Once stopped, waits return immediately.
+ */
+class WakeUpSignal {
+
+    private boolean wakeUpRequested = false;
+    private boolean stopped = false;
+
+    synchronized void wakeUp() {
+        wakeUpRequested = true;
+        notifyAll();
+    }
+
+    synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    synchronized void clear() {
+        wakeUpRequested = false;
+    }
+
+    /**
+     * Waits until the delay has elapsed, a wakeup was requested or the signal was stopped.
+     */
+    synchronized void awaitWakeUp(long delayMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        long remainingMillis = delayMillis;
+        while (!wakeUpRequested && !stopped && remainingMillis > 0) {
+            wait(remainingMillis);
+            remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+    }
+
+    /**
+     * Waits until the delay has elapsed or the signal was stopped: wakeup requests do not cut the wait short.
+     */
+    synchronized void awaitStop(long delayMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        long remainingMillis = delayMillis;
+        while (!stopped && remainingMillis > 0) {
+            wait(remainingMillis);
+            remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+    }
+}
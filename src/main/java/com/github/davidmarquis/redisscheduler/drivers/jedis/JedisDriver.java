@@ -1,13 +1,22 @@
 package com.github.davidmarquis.redisscheduler.drivers.jedis;
 
+import com.github.davidmarquis.redisscheduler.LuaScript;
 import com.github.davidmarquis.redisscheduler.RedisConnectException;
 import com.github.davidmarquis.redisscheduler.RedisDriver;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.Transaction;
-
-import java.io.IOException;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 public class JedisDriver implements RedisDriver {
@@ -22,6 +31,87 @@ public class JedisDriver implements RedisDriver {
     public <T> T fetch(Function<Commands, T> block) {
         try (Jedis jedis = jedisPool.getResource()) {
             return block.apply(new JedisCommands(jedis));
+        } catch (JedisConnectionException e) {
+            throw new RedisConnectException(e);
+        }
+    }
+
+    @Override
+    public void executePipelined(Consumer<Commands> block) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            block.accept(new JedisPipelineCommands(pipeline));
+            // Redis may reject some of the pipelined commands, which must not be taken as written.
+            for (Object reply : pipeline.syncAndReturnAll()) {
+                if (reply instanceof JedisDataException) {
+                    throw (JedisDataException) reply;
+                }
+            }
+        } catch (JedisConnectionException e) {
+            throw new RedisConnectException(e);
+        }
+    }
+
+    @Override
+    public Subscription subscribe(String channel, Consumer<String> onMessage) {
+        JedisSubscription subscription = new JedisSubscription(channel, onMessage);
+
+        Thread thread = new Thread(subscription, channel + "-subscription");
+        thread.setDaemon(true);
+        thread.start();
+
+        return subscription;
+    }
+
+    /**
+     * Jedis subscriptions block the connection and the calling thread until unsubscribed, so each subscription holds a
+     * pooled connection on its own thread. The subscription is renewed if the connection is lost.
+     */
+    private class JedisSubscription extends JedisPubSub implements Subscription, Runnable {
+        private static final int RESUBSCRIBE_DELAY_MILLIS = 1000;
+
+        private final String channel;
+        private final Consumer<String> onMessage;
+
+        private volatile boolean unsubscribed = false;
+
+        private JedisSubscription(String channel, Consumer<String> onMessage) {
+            this.channel = channel;
+            this.onMessage = onMessage;
+        }
+
+        @Override
+        public void onMessage(String channel, String message) {
+            onMessage.accept(message);
+        }
+
+        @Override
+        public void run() {
+            while (!unsubscribed) {
+                try (Jedis jedis = jedisPool.getResource()) {
+                    jedis.subscribe(this, channel);
+                    // Jedis counts (UN)SUBSCRIBE commands as pending replies, which would break the next pipeline
+                    // executed on this connection once returned to the pool. The reply of a second UNSUBSCRIBE may
+                    // also be left unread on the socket, so the socket is closed as well: Jedis reconnects on the next
+                    // command.
+                    jedis.getClient().resetPipelinedCount();
+                    jedis.disconnect();
+                } catch (JedisConnectionException e) {
+                    try {
+                        Thread.sleep(RESUBSCRIBE_DELAY_MILLIS);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void unsubscribe() {
+            unsubscribed = true;
+            if (isSubscribed()) {
+                super.unsubscribe();
+            }
         }
     }
 
@@ -29,8 +119,6 @@ public class JedisDriver implements RedisDriver {
 
         private Jedis jedis;
 
-        private Transaction txn;
-
         private JedisCommands(Jedis jedis) {
             this.jedis = jedis;
         }
@@ -40,13 +128,24 @@ public class JedisDriver implements RedisDriver {
             jedis.zadd(key, score, taskId);
         }
 
+        @Override
+        public void addAllToSetWithScores(String key, Map<String, Long> scoresByTaskId) {
+            jedis.zadd(key, toDoubleScores(scoresByTaskId));
+        }
+
         @Override
         public void removeFromSet(String key, String taskId) {
-            if (txn != null) {
-                txn.zrem(key, taskId);
-            } else {
-                jedis.zrem(key, taskId);
-            }
+            jedis.zrem(key, taskId);
+        }
+
+        @Override
+        public void removeAllFromSet(String key, Collection<String> taskIds) {
+            jedis.zrem(key, taskIds.toArray(new String[0]));
+        }
+
+        @Override
+        public void removeAllFromHash(String key, Collection<String> fields) {
+            jedis.hdel(key, fields.toArray(new String[0]));
         }
 
         @Override
@@ -55,42 +154,100 @@ public class JedisDriver implements RedisDriver {
         }
 
         @Override
-        public void watch(String key) {
-            jedis.watch(key);
+        public Optional<Long> firstScore(String key) {
+            return jedis.zrangeWithScores(key, 0, 0)
+                        .stream()
+                        .findFirst()
+                        .map(Tuple::getScore)
+                        .map(Double::longValue);
         }
 
         @Override
-        public void unwatch() {
-            jedis.unwatch();
+        public long count(String key) {
+            return jedis.zcard(key);
         }
 
         @Override
-        public void multi() {
-            txn = jedis.multi();
+        public void publish(String channel, String message) {
+            jedis.publish(channel, message);
         }
 
         @Override
-        public boolean exec() {
+        @SuppressWarnings("unchecked")
+        public List<String> evalScript(LuaScript script, List<String> keys, List<String> args) {
             try {
-                return Optional.ofNullable(txn)
-                               .map(Transaction::exec)
-                               .map(col -> !col.isEmpty())
-                               .orElse(false);
-            } finally {
-                try {
-                    txn.close();
-                } catch (IOException e) {
-                    throw new RedisConnectException(e);
+                return (List<String>) jedis.evalsha(script.sha1(), keys, args);
+            } catch (JedisDataException e) {
+                if (e.getMessage() == null || !e.getMessage().startsWith("NOSCRIPT")) {
+                    throw e;
                 }
-                txn = null;
+                return (List<String>) jedis.eval(script.body(), keys, args);
             }
         }
+    }
+
+    private static class JedisPipelineCommands implements Commands {
+
+        private Pipeline pipeline;
+
+        private JedisPipelineCommands(Pipeline pipeline) {
+            this.pipeline = pipeline;
+        }
 
         @Override
-        public Optional<String> firstByScore(String key, long minScore, long maxScore) {
-            return jedis.zrangeByScore(key, minScore, maxScore, 0, 1)
-                        .stream()
-                        .findFirst();
+        public void addToSetWithScore(String key, String taskId, long score) {
+            pipeline.zadd(key, score, taskId);
+        }
+
+        @Override
+        public void addAllToSetWithScores(String key, Map<String, Long> scoresByTaskId) {
+            pipeline.zadd(key, toDoubleScores(scoresByTaskId));
+        }
+
+        @Override
+        public void removeFromSet(String key, String taskId) {
+            pipeline.zrem(key, taskId);
+        }
+
+        @Override
+        public void removeAllFromSet(String key, Collection<String> taskIds) {
+            pipeline.zrem(key, taskIds.toArray(new String[0]));
+        }
+
+        @Override
+        public void removeAllFromHash(String key, Collection<String> fields) {
+            pipeline.hdel(key, fields.toArray(new String[0]));
+        }
+
+        @Override
+        public void remove(String key) {
+            pipeline.del(key);
+        }
+
+        @Override
+        public void publish(String channel, String message) {
+            pipeline.publish(channel, message);
+        }
+
+        @Override
+        public Optional<Long> firstScore(String key) {
+            throw new UnsupportedOperationException("Cannot read values within a pipeline.");
+        }
+
+        @Override
+        public long count(String key) {
+            throw new UnsupportedOperationException("Cannot read values within a pipeline.");
         }
+
+        @Override
+        public List<String> evalScript(LuaScript script, List<String> keys, List<String> args) {
+            throw new UnsupportedOperationException("Cannot read values within a pipeline.");
+        }
+    }
+
+    private static Map<String, Double> toDoubleScores(Map<String, Long> scoresByTaskId) {
+        Map<String, Double> scores = new HashMap<>(scoresByTaskId.size());
+        scoresByTaskId.forEach((taskId, score) -> scores.put(taskId, score.doubleValue()));
+        return scores;
     }
 }
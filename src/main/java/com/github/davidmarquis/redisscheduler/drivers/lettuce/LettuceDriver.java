@@ -1,32 +1,192 @@
 package com.github.davidmarquis.redisscheduler.drivers.lettuce;
 
+import com.github.davidmarquis.redisscheduler.AsyncRedisDriver;
+import com.github.davidmarquis.redisscheduler.LuaScript;
 import com.github.davidmarquis.redisscheduler.RedisConnectException;
 import com.github.davidmarquis.redisscheduler.RedisDriver;
-import io.lettuce.core.Limit;
-import io.lettuce.core.Range;
+import io.lettuce.core.LettuceFutures;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandTimeoutException;
 import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.RedisFuture;
 import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
 
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
  * Driver using Lettuce in synchronous mode (see lettuce.io)
+ * <p>
+ * Commands are sent over a single long-lived connection shared by all threads, either synchronously or asynchronously
+ * (see {@link AsyncRedisDriver}). Pipelines need a connection of their
+ * own, and are executed on dedicated connections which are kept open for reuse. Connections are closed with the driver.
  */
-public class LettuceDriver implements RedisDriver {
+public class LettuceDriver implements RedisDriver, AsyncRedisDriver, Closeable {
+    private static final int MAX_IDLE_DEDICATED_CONNECTIONS = 2;
+
     private final RedisClient client;
 
+    private volatile StatefulRedisConnection<String, String> sharedConnection;
+    private final Deque<StatefulRedisConnection<String, String>> idleDedicatedConnections = new ConcurrentLinkedDeque<>();
+
     public LettuceDriver(RedisClient client) {
         this.client = client;
     }
 
     @Override
     public <T> T fetch(Function<Commands, T> block) {
-        try (StatefulRedisConnection<String, String> connection = client.connect()) {
-            RedisCommands<String, String> commands = connection.sync();
-            return block.apply(new LettuceCommands(commands));
+        try {
+            return block.apply(new LettuceCommands(sharedConnection().sync()));
+        } catch (RedisConnectionException | RedisCommandTimeoutException e) {
+            throw new RedisConnectException(e);
+        }
+    }
+
+    @Override
+    public <T> CompletionStage<T> fetchAsync(Function<AsyncCommands, CompletionStage<T>> block) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            block.apply(new LettuceAsyncCommands(sharedConnection().async()))
+                 .whenComplete((value, error) -> {
+                     if (error == null) {
+                         result.complete(value);
+                     } else {
+                         result.completeExceptionally(translateAsyncError(error));
+                     }
+                 });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(translateAsyncError(e));
+        }
+        return result;
+    }
+
+    private static Throwable translateAsyncError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RedisConnectionException || cause instanceof RedisCommandTimeoutException) {
+            return new RedisConnectException(cause);
+        }
+        return cause;
+    }
+
+    @Override
+    public void executePipelined(Consumer<Commands> block) {
+        StatefulRedisConnection<String, String> connection = null;
+        try {
+            connection = borrowDedicatedConnection();
+
+            LettucePipelineCommands commands = new LettucePipelineCommands(connection.async());
+            block.accept(commands);
+
+            connection.flushCommands();
+            commands.awaitAll(connection.getTimeout());
+
+            releaseDedicatedConnection(connection);
+            connection = null;
+            commands.checkReplies();
+        } catch (RedisConnectionException | RedisCommandTimeoutException e) {
+            closeQuietly(connection);
+            throw new RedisConnectException(e);
+        } catch (RuntimeException e) {
+            closeQuietly(connection);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(sharedConnection);
+        sharedConnection = null;
+
+        StatefulRedisConnection<String, String> connection;
+        while ((connection = idleDedicatedConnections.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Lettuce reconnects automatically when a connection is lost. However, if the shared connection was closed (or
+     * cannot reconnect by itself), it is replaced by a new connection.
+     */
+    private StatefulRedisConnection<String, String> sharedConnection() {
+        StatefulRedisConnection<String, String> connection = sharedConnection;
+        if (connection != null && connection.isOpen()) {
+            return connection;
+        }
+
+        synchronized (this) {
+            if (sharedConnection == null || !sharedConnection.isOpen()) {
+                closeQuietly(sharedConnection);
+                sharedConnection = client.connect();
+            }
+            return sharedConnection;
+        }
+    }
+
+    private StatefulRedisConnection<String, String> borrowDedicatedConnection() {
+        StatefulRedisConnection<String, String> connection;
+        while ((connection = idleDedicatedConnections.poll()) != null) {
+            if (connection.isOpen()) {
+                return connection;
+            }
+            closeQuietly(connection);
+        }
+
+        connection = client.connect();
+        connection.setAutoFlushCommands(false);
+        return connection;
+    }
+
+    private void releaseDedicatedConnection(StatefulRedisConnection<String, String> connection) {
+        if (idleDedicatedConnections.size() < MAX_IDLE_DEDICATED_CONNECTIONS) {
+            idleDedicatedConnections.push(connection);
+        } else {
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(StatefulRedisConnection<String, String> connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public Subscription subscribe(String channel, Consumer<String> onMessage) {
+        try {
+            StatefulRedisPubSubConnection<String, String> connection = client.connectPubSub();
+            connection.addListener(new RedisPubSubAdapter<String, String>() {
+                @Override
+                public void message(String messageChannel, String message) {
+                    if (channel.equals(messageChannel)) {
+                        onMessage.accept(message);
+                    }
+                }
+            });
+            connection.sync().subscribe(channel);
+
+            return connection::close;
         } catch (RedisConnectionException e) {
             throw new RedisConnectException(e);
         }
@@ -44,41 +204,178 @@ public class LettuceDriver implements RedisDriver {
             commands.zadd(key, score, taskId);
         }
 
+        @Override
+        public void addAllToSetWithScores(String key, Map<String, Long> scoresByTaskId) {
+            commands.zadd(key, toScoredValues(scoresByTaskId));
+        }
+
         @Override
         public void removeFromSet(String key, String taskId) {
             commands.zrem(key, taskId);
         }
 
+        @Override
+        public void removeAllFromSet(String key, Collection<String> taskIds) {
+            commands.zrem(key, taskIds.toArray(new String[0]));
+        }
+
+        @Override
+        public void removeAllFromHash(String key, Collection<String> fields) {
+            commands.hdel(key, fields.toArray(new String[0]));
+        }
+
         @Override
         public void remove(String key) {
             commands.del(key);
         }
 
         @Override
-        public void watch(String key) {
-            commands.watch(key);
+        public Optional<Long> firstScore(String key) {
+            return commands.zrangeWithScores(key, 0, 0)
+                           .stream()
+                           .findFirst()
+                           .map(ScoredValue::getScore)
+                           .map(Double::longValue);
+        }
+
+        @Override
+        public long count(String key) {
+            return commands.zcard(key);
         }
 
         @Override
-        public void unwatch() {
-            commands.unwatch();
+        public void publish(String channel, String message) {
+            commands.publish(channel, message);
         }
 
         @Override
-        public void multi() {
-            commands.multi();
+        public List<String> evalScript(LuaScript script, List<String> keys, List<String> args) {
+            String[] keysArray = keys.toArray(new String[0]);
+            String[] argsArray = args.toArray(new String[0]);
+            try {
+                return commands.evalsha(script.sha1(), ScriptOutputType.MULTI, keysArray, argsArray);
+            } catch (RedisCommandExecutionException e) {
+                if (e.getMessage() == null || !e.getMessage().startsWith("NOSCRIPT")) {
+                    throw e;
+                }
+                return commands.eval(script.body(), ScriptOutputType.MULTI, keysArray, argsArray);
+            }
+        }
+    }
+
+    private static class LettuceAsyncCommands implements AsyncCommands {
+        private final RedisAsyncCommands<String, String> commands;
+
+        private LettuceAsyncCommands(RedisAsyncCommands<String, String> commands) {
+            this.commands = commands;
         }
 
         @Override
-        public boolean exec() {
-            return !commands.exec().isEmpty();
+        public CompletionStage<Void> addToSetWithScore(String key, String taskId, long score) {
+            return commands.zadd(key, score, taskId).thenApply(reply -> null);
         }
 
         @Override
-        public Optional<String> firstByScore(String key, long minScore, long maxScore) {
-            return commands.zrangebyscore(key, Range.create(minScore, maxScore), Limit.create(0, 1))
-                           .stream()
-                           .findFirst();
+        public CompletionStage<Void> removeFromSet(String key, String taskId) {
+            return commands.zrem(key, taskId).thenApply(reply -> null);
+        }
+
+        @Override
+        public CompletionStage<Void> removeFromHash(String key, String field) {
+            return commands.hdel(key, field).thenApply(reply -> null);
+        }
+
+        @Override
+        public CompletionStage<Void> publish(String channel, String message) {
+            return commands.publish(channel, message).thenApply(reply -> null);
+        }
+    }
+
+    private static class LettucePipelineCommands implements Commands {
+        private final RedisAsyncCommands<String, String> commands;
+        private final List<RedisFuture<?>> futures = new ArrayList<>();
+
+        private LettucePipelineCommands(RedisAsyncCommands<String, String> commands) {
+            this.commands = commands;
+        }
+
+        /**
+         * Waits for the replies of all pipelined commands. A pipeline timing out leaves replies unread on its
+         * connection, which must then be closed rather than reused.
+         */
+        private void awaitAll(Duration timeout) {
+            if (!LettuceFutures.awaitAll(timeout, futures.toArray(new RedisFuture<?>[0]))) {
+                throw new RedisConnectException(String.format("Pipelined commands timed out after %sms.", timeout.toMillis()));
+            }
+        }
+
+        /**
+         * Fails if Redis rejected any of the pipelined commands, so that rejected writes are not taken as written.
+         */
+        private void checkReplies() {
+            for (RedisFuture<?> future : futures) {
+                if (future.getError() != null) {
+                    throw new RedisCommandExecutionException(future.getError());
+                }
+            }
+        }
+
+        @Override
+        public void addToSetWithScore(String key, String taskId, long score) {
+            futures.add(commands.zadd(key, score, taskId));
+        }
+
+        @Override
+        public void addAllToSetWithScores(String key, Map<String, Long> scoresByTaskId) {
+            futures.add(commands.zadd(key, toScoredValues(scoresByTaskId)));
         }
+
+        @Override
+        public void removeFromSet(String key, String taskId) {
+            futures.add(commands.zrem(key, taskId));
+        }
+
+        @Override
+        public void removeAllFromSet(String key, Collection<String> taskIds) {
+            futures.add(commands.zrem(key, taskIds.toArray(new String[0])));
+        }
+
+        @Override
+        public void removeAllFromHash(String key, Collection<String> fields) {
+            futures.add(commands.hdel(key, fields.toArray(new String[0])));
+        }
+
+        @Override
+        public void remove(String key) {
+            futures.add(commands.del(key));
+        }
+
+        @Override
+        public void publish(String channel, String message) {
+            futures.add(commands.publish(channel, message));
+        }
+
+        @Override
+        public Optional<Long> firstScore(String key) {
+            throw new UnsupportedOperationException("Cannot read values within a pipeline.");
+        }
+
+        @Override
+        public long count(String key) {
+            throw new UnsupportedOperationException("Cannot read values within a pipeline.");
+        }
+
+        @Override
+        public List<String> evalScript(LuaScript script, List<String> keys, List<String> args) {
+            throw new UnsupportedOperationException("Cannot read values within a pipeline.");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ScoredValue<String>[] toScoredValues(Map<String, Long> scoresByTaskId) {
+        return scoresByTaskId.entrySet()
+                             .stream()
+                             .map(entry -> ScoredValue.fromNullable(entry.getValue(), entry.getKey()))
+                             .toArray(ScoredValue[]::new);
     }
 }
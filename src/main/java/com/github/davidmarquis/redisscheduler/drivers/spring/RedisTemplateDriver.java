@@ -1,21 +1,48 @@
 package com.github.davidmarquis.redisscheduler.drivers.spring;
 
+import com.github.davidmarquis.redisscheduler.LuaScript;
 import com.github.davidmarquis.redisscheduler.RedisConnectException;
 import com.github.davidmarquis.redisscheduler.RedisDriver;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.DefaultTuple;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.RedisZSetCommands.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.ClassUtils;
+import redis.clients.jedis.Jedis;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
 /**
- * Driver using Spring Data Redis
+ * Driver using Spring Data Redis.
+ * <p>
+ * Lua scripts exchange task IDs with Redis as plain strings: keys and task IDs are therefore always serialized as
+ * strings, whatever the serializers of the provided template.
  */
 public class RedisTemplateDriver implements RedisDriver {
 
+    private static final StringRedisSerializer STRING_SERIALIZER = new StringRedisSerializer();
+    private static final boolean JEDIS_PRESENT = ClassUtils.isPresent("redis.clients.jedis.Jedis", RedisTemplateDriver.class.getClassLoader());
+
     private RedisTemplate<String, String> redisTemplate;
 
     public RedisTemplateDriver(RedisTemplate<String, String> redisTemplate) {
@@ -38,6 +65,112 @@ public class RedisTemplateDriver implements RedisDriver {
         }
     }
 
+    @Override
+    public void executePipelined(Consumer<Commands> block) {
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    block.accept(new RedisConnectionCommands((RedisOperations<String, String>) operations));
+                    return null;
+                }
+            });
+        } catch (RedisConnectionFailureException e) {
+            throw new RedisConnectException(e);
+        }
+    }
+
+    @Override
+    public Subscription subscribe(String channel, Consumer<String> onMessage) {
+        SpringSubscription subscription = new SpringSubscription(channel, onMessage);
+
+        Thread thread = new Thread(subscription, channel + "-subscription");
+        thread.setDaemon(true);
+        thread.start();
+
+        return subscription;
+    }
+
+    /**
+     * Depending on the connection factory, subscribing may block the calling thread until unsubscribed, so each
+     * subscription holds a connection on its own thread. The connection is only released once the subscription has
+     * fully ended, so that it is never returned to a pool while still subscribed. The subscription is renewed if the
+     * connection is lost.
+     */
+    private class SpringSubscription implements Subscription, Runnable, MessageListener {
+        private static final int RESUBSCRIBE_DELAY_MILLIS = 1000;
+
+        private final byte[] channel;
+        private final Consumer<String> onMessage;
+
+        private final CountDownLatch unsubscribed = new CountDownLatch(1);
+        private volatile RedisConnection connection;
+
+        private SpringSubscription(String channel, Consumer<String> onMessage) {
+            this.channel = STRING_SERIALIZER.serialize(channel);
+            this.onMessage = onMessage;
+        }
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            onMessage.accept(STRING_SERIALIZER.deserialize(message.getBody()));
+        }
+
+        @Override
+        public void run() {
+            while (unsubscribed.getCount() > 0) {
+                try {
+                    connection = redisTemplate.getConnectionFactory().getConnection();
+                    try {
+                        connection.subscribe(this, channel);
+                        // non-blocking connections return immediately: the subscription is kept until unsubscribed.
+                        unsubscribed.await();
+                    } finally {
+                        if (JEDIS_PRESENT) {
+                            JedisConnections.resetPipelinedCount(connection);
+                        }
+                        connection.close();
+                    }
+                } catch (RedisConnectionFailureException e) {
+                    try {
+                        unsubscribed.await(RESUBSCRIBE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void unsubscribe() {
+            unsubscribed.countDown();
+
+            RedisConnection subscribedConnection = connection;
+            if (subscribedConnection != null && subscribedConnection.isSubscribed()) {
+                subscribedConnection.getSubscription().unsubscribe();
+            }
+        }
+    }
+
+    /**
+     * Jedis counts (UN)SUBSCRIBE commands as pending replies, which would break the next pipeline executed on a
+     * subscription connection once returned to the pool. A message published while unsubscribing may also be left
+     * unread on the socket, so the socket is closed as well: Jedis reconnects on the next command. Kept apart so that
+     * Jedis is only loaded when present.
+     */
+    private static class JedisConnections {
+        private static void resetPipelinedCount(RedisConnection connection) {
+            Object nativeConnection = connection.getNativeConnection();
+            if (nativeConnection instanceof Jedis) {
+                ((Jedis) nativeConnection).getClient().resetPipelinedCount();
+                ((Jedis) nativeConnection).disconnect();
+            }
+        }
+    }
+
     private static class RedisConnectionCommands implements Commands {
         private RedisOperations<String, String> ops;
 
@@ -47,45 +180,102 @@ public class RedisTemplateDriver implements RedisDriver {
 
         @Override
         public void addToSetWithScore(String key, String taskId, long score) {
-            ops.opsForZSet().add(key, taskId, score);
+            ops.execute((RedisCallback<Boolean>) connection -> connection.zAdd(raw(key), score, raw(taskId)));
+        }
+
+        @Override
+        public void addAllToSetWithScores(String key, Map<String, Long> scoresByTaskId) {
+            Set<Tuple> tuples = scoresByTaskId.entrySet()
+                                              .stream()
+                                              .map(entry -> new DefaultTuple(raw(entry.getKey()), entry.getValue().doubleValue()))
+                                              .collect(toSet());
+            ops.execute((RedisCallback<Long>) connection -> connection.zAdd(raw(key), tuples));
         }
 
         @Override
         public void removeFromSet(String key, String taskId) {
-            ops.opsForZSet().remove(key, taskId);
+            ops.execute((RedisCallback<Long>) connection -> connection.zRem(raw(key), raw(taskId)));
         }
 
         @Override
-        public void remove(String key) {
-            ops.delete(key);
+        public void removeAllFromSet(String key, Collection<String> taskIds) {
+            ops.execute((RedisCallback<Long>) connection -> connection.zRem(raw(key), raw(taskIds)));
         }
 
         @Override
-        public void watch(String key) {
-            ops.watch(key);
+        public void removeAllFromHash(String key, Collection<String> fields) {
+            ops.execute((RedisCallback<Long>) connection -> connection.hDel(raw(key), raw(fields)));
         }
 
         @Override
-        public void unwatch() {
-            ops.unwatch();
+        public void remove(String key) {
+            ops.execute((RedisCallback<Long>) connection -> connection.del(raw(key)));
+        }
+
+        @Override
+        public Optional<Long> firstScore(String key) {
+            Set<Tuple> first = ops.execute((RedisCallback<Set<Tuple>>) connection -> connection.zRangeWithScores(raw(key), 0, 0));
+            return first.stream()
+                        .findFirst()
+                        .map(Tuple::getScore)
+                        .map(Double::longValue);
         }
 
         @Override
-        public void multi() {
-            ops.multi();
+        public long count(String key) {
+            return ops.execute((RedisCallback<Long>) connection -> connection.zCard(raw(key)));
         }
 
         @Override
-        public boolean exec() {
-            return ops.exec() != null;
+        public void publish(String channel, String message) {
+            ops.execute((RedisCallback<Long>) connection -> connection.publish(raw(channel), raw(message)));
         }
 
+        /**
+         * Runs the script by its SHA1, and loads it on Redis when it is not cached yet. Keys and arguments are sent as
+         * strings, rather than through the serializers of the template.
+         */
         @Override
-        public Optional<String> firstByScore(String key, long minScore, long maxScore) {
-            return ops.opsForZSet()
-                      .rangeByScore(key, minScore, maxScore, 0, 1)
-                      .stream()
-                      .findFirst();
+        public List<String> evalScript(LuaScript script, List<String> keys, List<String> args) {
+            byte[][] keysAndArgs = new byte[keys.size() + args.size()][];
+            int i = 0;
+            for (String key : keys) {
+                keysAndArgs[i++] = raw(key);
+            }
+            for (String arg : args) {
+                keysAndArgs[i++] = raw(arg);
+            }
+
+            List<Object> reply = ops.execute((RedisCallback<List<Object>>) connection -> {
+                try {
+                    return connection.evalSha(script.sha1(), ReturnType.MULTI, keys.size(), keysAndArgs);
+                } catch (DataAccessException e) {
+                    if (!isNoScriptError(e)) {
+                        throw e;
+                    }
+                    return connection.eval(raw(script.body()), ReturnType.MULTI, keys.size(), keysAndArgs);
+                }
+            });
+            return reply == null ? null : reply.stream()
+                                               .map(value -> value instanceof byte[] ? STRING_SERIALIZER.deserialize((byte[]) value) : String.valueOf(value))
+                                               .collect(toList());
+        }
+
+        private static boolean isNoScriptError(Throwable e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static byte[] raw(String value) {
+            return STRING_SERIALIZER.serialize(value);
+        }
+
+        private static byte[][] raw(Collection<String> values) {
+            return values.stream().map(STRING_SERIALIZER::serialize).toArray(byte[][]::new);
         }
     }
 }
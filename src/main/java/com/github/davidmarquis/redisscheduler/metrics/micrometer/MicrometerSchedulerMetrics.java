@@ -0,0 +1,83 @@
+package com.github.davidmarquis.redisscheduler.metrics.micrometer;
+
+import com.github.davidmarquis.redisscheduler.SchedulerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Publishes the measurements of a scheduler to a Micrometer {@link MeterRegistry}. All meters are tagged with the
+ * name of the scheduler, so one instance must be created per scheduler.
+ */
+public class MicrometerSchedulerMetrics implements SchedulerMetrics {
+
+    private final Counter polls;
+    private final Counter emptyPolls;
+    private final Counter claimedTasks;
+    private final Counter failedTasks;
+    private final Counter connectionRetries;
+    private final Timer claimRoundTrips;
+    private final Timer taskExecutions;
+    private final DistributionSummary taskLateness;
+    private final AtomicLong backlogSize = new AtomicLong();
+    private final AtomicLong backlogLatenessMillis = new AtomicLong();
+
+    public MicrometerSchedulerMetrics(MeterRegistry registry, String schedulerName) {
+        Tags tags = Tags.of("scheduler", schedulerName);
+
+        polls = registry.counter("redis.scheduler.polls", tags);
+        emptyPolls = registry.counter("redis.scheduler.polls.empty", tags);
+        claimedTasks = registry.counter("redis.scheduler.tasks.claimed", tags);
+        failedTasks = registry.counter("redis.scheduler.tasks.failed", tags);
+        connectionRetries = registry.counter("redis.scheduler.connection.retries", tags);
+        claimRoundTrips = registry.timer("redis.scheduler.claim", tags);
+        taskExecutions = registry.timer("redis.scheduler.task.execution", tags);
+        taskLateness = DistributionSummary.builder("redis.scheduler.task.lateness")
+                                          .tags(tags)
+                                          .baseUnit("milliseconds")
+                                          .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                                          .register(registry);
+        registry.gauge("redis.scheduler.backlog.size", tags, backlogSize);
+        registry.gauge("redis.scheduler.backlog.lateness.ms", tags, backlogLatenessMillis);
+    }
+
+    @Override
+    public void polled(int claimed, long roundTripNanos) {
+        polls.increment();
+        if (claimed == 0) {
+            emptyPolls.increment();
+        }
+        claimedTasks.increment(claimed);
+        claimRoundTrips.record(roundTripNanos, NANOSECONDS);
+    }
+
+    @Override
+    public void taskClaimed(long latenessMillis) {
+        taskLateness.record(latenessMillis);
+    }
+
+    @Override
+    public void taskExecuted(long durationNanos, boolean failed) {
+        if (failed) {
+            failedTasks.increment();
+        }
+        taskExecutions.record(durationNanos, NANOSECONDS);
+    }
+
+    @Override
+    public void connectionRetried() {
+        connectionRetries.increment();
+    }
+
+    @Override
+    public void backlogSampled(long size, long latenessMillis) {
+        backlogSize.set(size);
+        backlogLatenessMillis.set(latenessMillis);
+    }
+}
@@ -0,0 +1,13 @@
+-- Stores the next occurrence of cron recurrences, once computed by the caller from the values returned by claim.lua.
+-- Recurrences that changed or were removed meanwhile are left untouched.
+--
+-- KEYS[1]: the recurrence hash
+-- ARGV: for each member, the member, its recurrence as returned by claim.lua, and its next occurrence
+for i = 1, #ARGV, 3 do
+    local member, expected, following = ARGV[i], ARGV[i + 1], ARGV[i + 2]
+    if redis.call('HGET', KEYS[1], member) == expected then
+        local kind, _, parameters = string.match(expected, '^(%a+)|(%-?%d+)|(.*)$')
+        redis.call('HSET', KEYS[1], member, kind .. '|' .. following .. '|' .. parameters)
+    end
+end
+return {}
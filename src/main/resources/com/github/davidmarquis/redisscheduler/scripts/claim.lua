@@ -0,0 +1,209 @@
+-- Atomically claims up to ARGV[2] members due at or before ARGV[1], from the sorted set of the highest priority first,
+-- in ascending score order within each sorted set. When members are given after the limits, only those of them still
+-- due are claimed instead, in the given order.
+--
+-- Members of a limited type are only claimed when their type has a token left in its bucket, and less members in
+-- flight than its maximum. Other members are skipped and left in their sorted set: up to 1000 due members are then
+-- scanned to find claimable ones. The type of a member is the prefix of the member before the type separator. Claimed
+-- members of a type limiting the members in flight are added to the in-flight-by-type sorted set, scored by the
+-- expiry after which they are no longer counted (see release-in-flight.lua).
+--
+-- One-off members are removed from their sorted set, or moved to the in-flight sorted set scored by their lease expiry
+-- when ARGV[3] is not zero. Recurring members stay in the sorted set, scored by their next occurrence: computed here
+-- for fixed-rate recurrences, and read from the recurrence for cron recurrences. The occurrence following a claimed
+-- cron occurrence is then computed by the caller (see advance-recurrences.lua). A cron member whose next occurrence
+-- is not known yet is left in place and not fired, until the caller computes it.
+--
+-- Returns a flat array with, for each claimed member:
+--   the member,
+--   its score,
+--   its payload (an empty string if it has none or if payloads are not requested),
+--   'once', 'recurring', or 'pending' for a cron member that must not be fired yet,
+--   for cron members, the stored recurrence and the occurrence from which to compute the following one (or two empty
+--   strings),
+--   its number of failed attempts so far.
+--
+-- KEYS[1]: the scheduler's sorted set, holding the tasks of the default priority
+-- KEYS[2]: the in-flight sorted set
+-- KEYS[3]: the payload hash
+-- KEYS[4]: the recurrence hash
+-- KEYS[5]: the limit hash, holding the token bucket and the number of members in flight of each limited type
+-- KEYS[6]: the in-flight-by-type sorted set
+-- KEYS[7]: the attempt hash, holding the number of failed attempts of members to be retried
+-- KEYS[8..]: optional sorted sets holding the tasks of higher priorities, in ascending priority order
+-- ARGV[1]: current time, maximum score (inclusive)
+-- ARGV[2]: maximum number of members to claim
+-- ARGV[3]: lease expiry, or 0 to remove claimed one-off members
+-- ARGV[4]: '1' to return payloads
+-- ARGV[5]: number of limited types
+-- ARGV[6]: type separator
+-- ARGV[7]: expiry of the members claimed now in the in-flight-by-type sorted set
+-- ARGV[8..]: for each limited type, the type, the capacity of its bucket (or 0 for no rate limit), the tokens added to
+--            its bucket per millisecond, and its maximum number of members in flight (or 0 for no maximum)
+-- ARGV[8 + 4 * ARGV[5]..]: optional members to claim
+local now = tonumber(ARGV[1])
+local leaseExpiry = tonumber(ARGV[3])
+local withPayloads = ARGV[4] == '1'
+local hasRecurrences = redis.call('EXISTS', KEYS[4]) == 1
+local hasAttempts = redis.call('EXISTS', KEYS[7]) == 1
+local limitCount = tonumber(ARGV[5])
+local separator = ARGV[6]
+local firstMember = 8 + limitCount * 4
+
+local sets = {KEYS[1]}
+for i = 8, #KEYS do
+    table.insert(sets, KEYS[i])
+end
+
+local limits = {}
+for i = 8, firstMember - 1, 4 do
+    limits[ARGV[i]] = {capacity = tonumber(ARGV[i + 1]), refill = tonumber(ARGV[i + 2]), maxInFlight = tonumber(ARGV[i + 3])}
+end
+
+local function typeOf(member)
+    local position = string.find(member, separator, 1, true)
+    return position and string.sub(member, 1, position - 1)
+end
+
+if limitCount > 0 then
+    -- members whose completion was not reported in time are no longer counted.
+    local expired = redis.call('ZRANGEBYSCORE', KEYS[6], '-inf', '(' .. ARGV[1])
+    for _, member in ipairs(expired) do
+        redis.call('HINCRBY', KEYS[5], (typeOf(member) or '') .. '.inflight', -1)
+    end
+    if #expired > 0 then
+        redis.call('ZREMRANGEBYSCORE', KEYS[6], '-inf', '(' .. ARGV[1])
+    end
+end
+
+-- the limit of the type of a member with its current state, or nil if its type is not limited.
+local function limitOf(member)
+    local type = typeOf(member)
+    local limit = type and limits[type]
+    if limit and not limit.tokens then
+        local stored = redis.call('HMGET', KEYS[5], type .. '.tokens', type .. '.refilled', type .. '.inflight')
+        local elapsed = math.max(0, now - (tonumber(stored[2]) or now))
+        limit.type = type
+        limit.tokens = math.min(limit.capacity, (tonumber(stored[1]) or limit.capacity) + elapsed * limit.refill)
+        limit.inFlight = math.max(0, tonumber(stored[3]) or 0)
+    end
+    return limit
+end
+
+local function acquire(member)
+    local limit = limitOf(member)
+    if not limit then
+        return true
+    end
+    if (limit.capacity > 0 and limit.tokens < 1) or (limit.maxInFlight > 0 and limit.inFlight >= limit.maxInFlight) then
+        return false
+    end
+    limit.tokens = limit.tokens - 1
+    limit.inFlight = limit.inFlight + 1
+    return true
+end
+
+-- due members, each followed by its score and its sorted set.
+local due = {}
+if #ARGV >= firstMember then
+    for i = firstMember, #ARGV do
+        for _, set in ipairs(sets) do
+            local score = redis.call('ZSCORE', set, ARGV[i])
+            if score and tonumber(score) <= now then
+                if acquire(ARGV[i]) then
+                    table.insert(due, ARGV[i])
+                    table.insert(due, score)
+                    table.insert(due, set)
+                end
+                break
+            end
+        end
+    end
+else
+    local limit = tonumber(ARGV[2])
+    local maxScanned = limitCount > 0 and math.max(limit, 1000) or limit
+    local pageSize = limitCount > 0 and math.max(limit, 100) or limit
+    local scanned = 0
+    for s = #sets, 1, -1 do
+        local offset = 0
+        while #due / 3 < limit and scanned < maxScanned do
+            local count = math.min(pageSize, maxScanned - scanned)
+            local members = redis.call('ZRANGEBYSCORE', sets[s], '-inf', ARGV[1], 'WITHSCORES', 'LIMIT', offset, count)
+            for i = 1, #members, 2 do
+                if #due / 3 < limit and acquire(members[i]) then
+                    table.insert(due, members[i])
+                    table.insert(due, members[i + 1])
+                    table.insert(due, sets[s])
+                end
+            end
+            scanned = scanned + #members / 2
+            offset = offset + #members / 2
+            if #members / 2 < count then
+                break
+            end
+        end
+        if #due / 3 >= limit or scanned >= maxScanned then
+            break
+        end
+    end
+end
+
+local claimed = {}
+for i = 1, #due, 3 do
+    local member, score, set = due[i], due[i + 1], due[i + 2]
+    local recurrence = hasRecurrences and redis.call('HGET', KEYS[4], member)
+    local status, cron, base = 'once', '', ''
+
+    if recurrence then
+        local kind, following, parameters = string.match(recurrence, '^(%a+)|(%-?%d+)|(.*)$')
+        status = 'recurring'
+        if kind == 'rate' then
+            local period = tonumber(parameters)
+            local nextScore = tonumber(score) + period * (math.floor((now - tonumber(score)) / period) + 1)
+            redis.call('ZADD', set, string.format('%.0f', nextScore), member)
+        elseif tonumber(following) > tonumber(score) then
+            redis.call('ZADD', set, following, member)
+            cron, base = recurrence, following
+        else
+            status, cron, base = 'pending', recurrence, score
+        end
+    else
+        redis.call('ZREM', set, member)
+        if leaseExpiry > 0 then
+            redis.call('ZADD', KEYS[2], ARGV[3], member)
+        end
+    end
+
+    local limit = limitOf(member)
+    if limit and status == 'pending' then
+        limit.tokens = limit.tokens + 1
+        limit.inFlight = limit.inFlight - 1
+    elseif limit and (limit.maxInFlight == 0 or redis.call('ZADD', KEYS[6], ARGV[7], member) == 0) then
+        -- not counted, or already counted as in flight.
+        limit.inFlight = limit.inFlight - 1
+    end
+
+    local payload = ''
+    if withPayloads then
+        payload = redis.call('HGET', KEYS[3], member) or ''
+        if not recurrence and leaseExpiry == 0 then
+            redis.call('HDEL', KEYS[3], member)
+        end
+    end
+
+    table.insert(claimed, member)
+    table.insert(claimed, score)
+    table.insert(claimed, payload)
+    table.insert(claimed, status)
+    table.insert(claimed, cron)
+    table.insert(claimed, base)
+    table.insert(claimed, hasAttempts and redis.call('HGET', KEYS[7], member) or '0')
+end
+
+for _, limit in pairs(limits) do
+    if limit.tokens then
+        redis.call('HMSET', KEYS[5], limit.type .. '.tokens', tostring(limit.tokens), limit.type .. '.refilled', ARGV[1],
+                   limit.type .. '.inflight', tostring(limit.inFlight))
+    end
+end
+return claimed
@@ -0,0 +1,4 @@
+-- Returns the number of members of a sorted set.
+--
+-- KEYS[1]: the sorted set
+return {tostring(redis.call('ZCARD', KEYS[1]))}
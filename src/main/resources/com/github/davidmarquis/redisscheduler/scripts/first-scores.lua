@@ -0,0 +1,9 @@
+-- Returns the lowest score of each sorted set, or an empty string for an empty sorted set, in the order of the keys.
+--
+-- KEYS: the sorted sets
+local scores = {}
+for i, key in ipairs(KEYS) do
+    local first = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')
+    scores[i] = first[2] or ''
+end
+return scores
@@ -0,0 +1,10 @@
+-- Registers the heartbeat of a scheduler instance, forgets the instances whose heartbeat expired, and returns the
+-- live instances.
+--
+-- KEYS[1]: the sorted set of instances, scored by the expiry of their heartbeat
+-- ARGV[1]: current time
+-- ARGV[2]: expiry of the heartbeat
+-- ARGV[3]: the instance
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', '(' .. ARGV[1])
+redis.call('ZADD', KEYS[1], ARGV[2], ARGV[3])
+return redis.call('ZRANGE', KEYS[1], 0, -1)
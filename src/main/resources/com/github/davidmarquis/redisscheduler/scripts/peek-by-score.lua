@@ -0,0 +1,7 @@
+-- Returns up to ARGV[2] members scored at or before ARGV[1], in ascending score order, each followed by its score.
+-- Members are left in place.
+--
+-- KEYS[1]: the scheduler's sorted set
+-- ARGV[1]: maximum score (inclusive)
+-- ARGV[2]: maximum number of members to return
+return redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'WITHSCORES', 'LIMIT', 0, tonumber(ARGV[2]))
@@ -0,0 +1,36 @@
+-- Moves up to ARGV[1] members of the given cold buckets to the scheduler's sorted set, in the given order, keeping
+-- their score. Members no longer held in the bucket according to the cold hash, as rescheduled or unscheduled since,
+-- are dropped. Empty buckets are removed from the bucket index.
+-- Returns a single-element array: the number of moved members.
+--
+-- KEYS[1]: the scheduler's sorted set, holding the tasks of the default priority
+-- KEYS[2]: the cold hash, holding the cold bucket of each member held in a cold bucket
+-- KEYS[3]: the bucket index sorted set, holding each non-empty cold bucket scored by its start time
+-- KEYS[4..]: the sorted sets of the cold buckets to move, in the order of the buckets in ARGV
+-- ARGV[1]: maximum number of members to move or drop
+-- ARGV[2..]: the numbers of the cold buckets to move
+local limit = tonumber(ARGV[1])
+local processed, promoted = 0, 0
+
+for b = 2, #ARGV do
+    local bucket, bucketKey = ARGV[b], KEYS[b + 2]
+    local members = redis.call('ZRANGE', bucketKey, 0, limit - processed - 1, 'WITHSCORES')
+    for i = 1, #members, 2 do
+        local member = members[i]
+        if redis.call('HGET', KEYS[2], member) == bucket then
+            redis.call('ZADD', KEYS[1], members[i + 1], member)
+            redis.call('HDEL', KEYS[2], member)
+            promoted = promoted + 1
+        end
+        redis.call('ZREM', bucketKey, member)
+    end
+    processed = processed + #members / 2
+
+    if redis.call('ZCARD', bucketKey) == 0 then
+        redis.call('ZREM', KEYS[3], bucket)
+    end
+    if processed >= limit then
+        break
+    end
+end
+return {tostring(promoted)}
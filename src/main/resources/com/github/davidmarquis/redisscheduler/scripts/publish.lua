@@ -0,0 +1,6 @@
+-- Publishes a message on a Pub/Sub channel.
+--
+-- ARGV[1]: the channel
+-- ARGV[2]: the message
+redis.call('PUBLISH', ARGV[1], ARGV[2])
+return {}
@@ -0,0 +1,11 @@
+-- Stops counting a member claimed by claim.lua as in flight, once it completed. Members that are no longer counted,
+-- because their expiry was reached meanwhile, are left untouched.
+--
+-- KEYS[1]: the limit hash
+-- KEYS[2]: the in-flight-by-type sorted set
+-- ARGV[1]: the member
+-- ARGV[2]: the type of the member
+if redis.call('ZREM', KEYS[2], ARGV[1]) == 1 then
+    redis.call('HINCRBY', KEYS[1], ARGV[2] .. '.inflight', -1)
+end
+return {}
@@ -0,0 +1,8 @@
+-- Removes fields from a hash.
+--
+-- KEYS[1]: the hash
+-- ARGV: the fields
+for _, field in ipairs(ARGV) do
+    redis.call('HDEL', KEYS[1], field)
+end
+return {}
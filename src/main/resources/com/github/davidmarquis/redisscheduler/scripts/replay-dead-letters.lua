@@ -0,0 +1,46 @@
+-- Schedules dead-lettered members again for immediate execution, with their attempts reset. When members are given
+-- from ARGV[3] on, only those of them still dead-lettered are replayed, otherwise up to ARGV[2] of the oldest ones.
+-- Members that were scheduled again meanwhile, whether at any priority or in a cold bucket, keep their new score.
+--
+-- Returns the replayed members.
+--
+-- KEYS[1]: the scheduler's sorted set, holding the tasks of the default priority
+-- KEYS[2]: the attempt hash
+-- KEYS[3]: the dead-letter sorted set
+-- KEYS[4]: the cold hash, holding the cold bucket of each member held in a cold bucket
+-- KEYS[5..]: optional sorted sets holding the tasks of higher priorities
+-- ARGV[1]: current time
+-- ARGV[2]: maximum number of members to replay
+-- ARGV[3..]: optional members to replay
+local function isScheduled(member)
+    if redis.call('HEXISTS', KEYS[4], member) == 1 then
+        return true
+    end
+    for i, key in ipairs(KEYS) do
+        if (i == 1 or i > 4) and redis.call('ZSCORE', key, member) then
+            return true
+        end
+    end
+    return false
+end
+
+local members = {}
+if #ARGV > 2 then
+    for i = 3, #ARGV do
+        table.insert(members, ARGV[i])
+    end
+else
+    members = redis.call('ZRANGE', KEYS[3], 0, tonumber(ARGV[2]) - 1)
+end
+
+local replayed = {}
+for _, member in ipairs(members) do
+    if redis.call('ZREM', KEYS[3], member) == 1 then
+        redis.call('HDEL', KEYS[2], member)
+        if not isScheduled(member) then
+            redis.call('ZADD', KEYS[1], ARGV[1], member)
+        end
+        table.insert(replayed, member)
+    end
+end
+return replayed
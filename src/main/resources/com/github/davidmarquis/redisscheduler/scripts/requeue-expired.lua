@@ -0,0 +1,31 @@
+-- Atomically moves up to ARGV[2] members whose lease expired at or before ARGV[1] from the in-flight sorted set back
+-- to the scheduler's sorted set, due at ARGV[1]. Members that were scheduled again meanwhile keep their new score,
+-- whether at another priority or in a cold bucket.
+-- Returns the moved members.
+--
+-- KEYS[1]: the in-flight sorted set
+-- KEYS[2]: the scheduler's sorted set, holding the tasks of the default priority
+-- KEYS[3]: the cold hash, holding the cold bucket of each member held in a cold bucket
+-- KEYS[4..]: optional sorted sets holding the tasks of higher priorities
+-- ARGV[1]: current time
+-- ARGV[2]: maximum number of members to move
+local function isScheduled(member)
+    if redis.call('HEXISTS', KEYS[3], member) == 1 then
+        return true
+    end
+    for i, key in ipairs(KEYS) do
+        if (i == 2 or i > 3) and redis.call('ZSCORE', key, member) then
+            return true
+        end
+    end
+    return false
+end
+
+local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+for _, member in ipairs(expired) do
+    redis.call('ZREM', KEYS[1], member)
+    if not isScheduled(member) then
+        redis.call('ZADD', KEYS[2], ARGV[1], member)
+    end
+end
+return expired
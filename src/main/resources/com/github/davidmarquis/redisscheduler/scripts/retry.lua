@@ -0,0 +1,48 @@
+-- Handles the failure of a member claimed by claim.lua, atomically with its acknowledgement: the member is removed
+-- from the in-flight sorted set, and scheduled again after an exponential backoff, or moved to the dead-letter sorted
+-- set once it failed the maximum number of attempts. A member that was scheduled again meanwhile is left as is, whether
+-- at any priority or in a cold bucket.
+--
+-- Returns a single-element array: the time of the retry, 'dead' if the member was dead-lettered, or 'scheduled' if
+-- it was scheduled again meanwhile.
+--
+-- KEYS[1]: the scheduler's sorted set, holding the tasks of the default priority
+-- KEYS[2]: the in-flight sorted set
+-- KEYS[3]: the payload hash
+-- KEYS[4]: the attempt hash
+-- KEYS[5]: the dead-letter sorted set, scored by the time of the last failure
+-- KEYS[6]: the cold hash, holding the cold bucket of each member held in a cold bucket
+-- KEYS[7..]: optional sorted sets holding the tasks of higher priorities
+-- ARGV[1]: the member
+-- ARGV[2]: current time
+-- ARGV[3]: maximum number of attempts
+-- ARGV[4]: delay before the first retry
+-- ARGV[5]: maximum delay between two attempts
+-- ARGV[6]: factor applied to the delay, for jitter
+-- ARGV[7]: optional payload to store again, as it may have been removed by the claim
+local member, now = ARGV[1], tonumber(ARGV[2])
+redis.call('ZREM', KEYS[2], member)
+
+if redis.call('HEXISTS', KEYS[6], member) == 1 then
+    return {'scheduled'}
+end
+for i, key in ipairs(KEYS) do
+    if (i == 1 or i > 6) and redis.call('ZSCORE', key, member) then
+        return {'scheduled'}
+    end
+end
+
+if ARGV[7] then
+    redis.call('HSET', KEYS[3], member, ARGV[7])
+end
+
+local attempts = redis.call('HINCRBY', KEYS[4], member, 1)
+if attempts >= tonumber(ARGV[3]) then
+    redis.call('ZADD', KEYS[5], ARGV[2], member)
+    return {'dead'}
+end
+
+local delay = math.min(tonumber(ARGV[5]), tonumber(ARGV[4]) * 2 ^ (attempts - 1)) * tonumber(ARGV[6])
+local retryAt = string.format('%.0f', now + delay)
+redis.call('ZADD', KEYS[1], retryAt, member)
+return {retryAt}
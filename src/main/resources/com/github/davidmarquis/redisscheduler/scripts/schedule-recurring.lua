@@ -0,0 +1,10 @@
+-- Atomically schedules the first occurrence of a recurring member along with its recurrence.
+--
+-- KEYS[1]: the scheduler's sorted set
+-- KEYS[2]: the recurrence hash
+-- ARGV[1]: score of the first occurrence
+-- ARGV[2]: member
+-- ARGV[3]: recurrence
+redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2])
+redis.call('HSET', KEYS[2], ARGV[2], ARGV[3])
+return {}
@@ -0,0 +1,40 @@
+-- Schedules members at the default priority: in the scheduler's sorted set when they are due soon, or in their cold
+-- bucket otherwise. Each cold bucket is a sorted set holding the members due within a period of time, moved to the
+-- scheduler's sorted set by promote-buckets.lua shortly before it starts. Members are first removed from the sorted
+-- sets of other priorities. The cold hash tells which bucket holds each member: a member left in its previous bucket is
+-- dropped when that bucket is promoted.
+--
+-- KEYS[1]: the scheduler's sorted set, holding the tasks of the default priority
+-- KEYS[2]: the cold hash, holding the cold bucket of each member held in a cold bucket
+-- KEYS[3]: the bucket index sorted set, holding each non-empty cold bucket scored by its start time
+-- KEYS[4..3+ARGV[1]]: the sorted sets holding the tasks of higher priorities
+-- KEYS[4+ARGV[1]..]: the sorted sets of the cold buckets, in the order of the buckets in ARGV
+-- ARGV[1]: number of sorted sets of higher priorities
+-- ARGV[2]: number of cold buckets
+-- ARGV[3]: duration of a cold bucket
+-- ARGV[4..3+ARGV[2]]: the numbers of the cold buckets
+-- ARGV[4+ARGV[2]..]: triples of score, member, and number of its cold bucket or an empty string
+local priorities, buckets, bucketDuration = tonumber(ARGV[1]), tonumber(ARGV[2]), tonumber(ARGV[3])
+
+local bucketKeys = {}
+for b = 1, buckets do
+    bucketKeys[ARGV[3 + b]] = KEYS[3 + priorities + b]
+end
+
+for i = 4 + buckets, #ARGV, 3 do
+    local score, member, bucket = ARGV[i], ARGV[i + 1], ARGV[i + 2]
+    for k = 4, 3 + priorities do
+        redis.call('ZREM', KEYS[k], member)
+    end
+
+    if bucket == '' then
+        redis.call('HDEL', KEYS[2], member)
+        redis.call('ZADD', KEYS[1], score, member)
+    else
+        redis.call('ZREM', KEYS[1], member)
+        redis.call('ZADD', bucketKeys[bucket], score, member)
+        redis.call('HSET', KEYS[2], member, bucket)
+        redis.call('ZADD', KEYS[3], string.format('%.0f', tonumber(bucket) * bucketDuration), bucket)
+    end
+end
+return {}
@@ -0,0 +1,10 @@
+-- Atomically schedules a member along with its payload.
+--
+-- KEYS[1]: the scheduler's sorted set
+-- KEYS[2]: the payload hash
+-- ARGV[1]: score
+-- ARGV[2]: member
+-- ARGV[3]: payload
+redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2])
+redis.call('HSET', KEYS[2], ARGV[2], ARGV[3])
+return {}
@@ -8,10 +8,31 @@ import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
 import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -25,8 +46,18 @@ public abstract class AcceptanceTestSuite {
     StubbedClock clock = new StubbedClock();
     LatchedTriggerListener taskTriggerListener = new LatchedTriggerListener();
 
+    // Released once the test is over, so that tasks blocking on it do not hold up stopping their scheduler.
+    CompletableFuture<Void> slowTasksReleased = new CompletableFuture<>();
+    private final List<RedisTaskScheduler> newSchedulers = new ArrayList<>();
+    private final List<SchedulerEngine> newEngines = new ArrayList<>();
+
     protected abstract void provideActors();
 
+    /**
+     * Driver used to create additional schedulers, when a test needs a custom configuration.
+     */
+    protected abstract RedisDriver driver();
+
     @Before
     public void setup() {
         provideActors();
@@ -39,6 +70,12 @@ public abstract class AcceptanceTestSuite {
 
     @After
     public void tearDown() {
+        slowTasksReleased.complete(null);
+        for (RedisTaskScheduler newScheduler : newSchedulers) {
+            newScheduler.unscheduleAllTasks();
+            newScheduler.stop();
+        }
+        newEngines.forEach(SchedulerEngine::close);
         scheduler.unscheduleAllTasks();
         taskTriggerListener.reset();
     }
@@ -115,13 +152,786 @@ public abstract class AcceptanceTestSuite {
         checkOnlyTasksTriggered("mytask1");
     }
 
+    @Test
+    public void canScheduleAsynchronously() throws Exception {
+        scheduler.scheduleAtAsync("mytask", clock.in(2, HOURS)).toCompletableFuture().get(1, SECONDS);
+        clock.fastForward(2, HOURS);
+
+        checkExactTasksTriggered("mytask");
+    }
+
+    @Test
+    public void canUnscheduleAsynchronously() throws Exception {
+        scheduler.scheduleAt("mytask1", clock.in(1, HOURS));
+        scheduler.scheduleAt("mytask2", clock.in(1, HOURS));
+        scheduler.unscheduleAsync("mytask2").toCompletableFuture().get(1, SECONDS);
+        clock.fastForward(2, HOURS);
+
+        checkOnlyTasksTriggered("mytask1");
+    }
+
+    @Test
+    public void canScheduleTasksInBulk() throws InterruptedException {
+        Map<String, Instant> triggerTimes = new LinkedHashMap<>();
+        triggerTimes.put("first", clock.in(1, HOURS));
+        triggerTimes.put("second", clock.in(2, HOURS));
+        triggerTimes.put("third", clock.in(3, HOURS));
+        triggerTimes.put("future", clock.in(5, HOURS));
+        scheduler.setBulkChunkSize(3);
+        scheduler.scheduleAll(triggerTimes);
+        clock.fastForward(3, HOURS);
+
+        checkOnlyTasksTriggered("first", "second", "third");
+    }
+
+    @Test
+    public void canUnscheduleTasksInBulk() throws InterruptedException {
+        scheduler.scheduleAt("mytask1", clock.in(1, HOURS));
+        scheduler.scheduleAt("mytask2", clock.in(1, HOURS));
+        scheduler.scheduleAt("mytask3", clock.in(1, HOURS));
+        scheduler.setBulkChunkSize(1);
+        scheduler.unscheduleAll(asList("mytask1", "mytask3"));
+        clock.fastForward(2, HOURS);
+
+        checkOnlyTasksTriggered("mytask2");
+    }
+
+    @Test
+    public void canClaimDueTasksInBatches() throws InterruptedException {
+        scheduler.setClaimBatchSize(2);
+        scheduler.scheduleAt("first", clock.in(1, HOURS));
+        scheduler.scheduleAt("second", clock.in(2, HOURS));
+        scheduler.scheduleAt("third", clock.in(3, HOURS));
+        scheduler.scheduleAt("future", clock.in(5, HOURS));
+        clock.fastForward(3, HOURS);
+
+        checkOnlyTasksTriggered("first", "second", "third");
+    }
+
+    @Test
+    public void wakeupNotificationTriggersTaskBeforePollingDelay() throws InterruptedException {
+        RedisTaskScheduler notifiedScheduler = newScheduler("notified-scheduler", s -> {
+            s.setPollingDelayMillis(10000);
+            s.setWakeupNotifications(true);
+        });
+        // lets the poller go idle until its next poll, 10 seconds from now.
+        Thread.sleep(300);
+
+        notifiedScheduler.runNow("immediate");
+
+        checkExactTasksTriggered("immediate");
+    }
+
+    @Test
+    public void adaptivePollingTriggersTaskBeforePollingDelay() throws InterruptedException {
+        newScheduler("adaptive-scheduler", s -> {
+            s.setClock(Clock.systemDefaultZone());
+            s.setPollingDelayMillis(10000);
+            s.setAdaptivePolling(true);
+            s.scheduleAt("soon", Instant.now().plusMillis(300));
+        });
+
+        checkExactTasksTriggered("soon");
+    }
+
+    @Test
+    public void canTriggerTasksSpreadOverShards() throws InterruptedException {
+        RedisTaskScheduler shardedScheduler = newScheduler("sharded-scheduler", s -> s.setShards(4));
+        for (int i = 0; i < 20; i++) {
+            shardedScheduler.scheduleAt("task" + i, clock.in(1, HOURS));
+        }
+        shardedScheduler.unschedule("task0");
+        clock.fastForward(1, HOURS);
+
+        taskTriggerListener.waitUntilTriggeredCount(19, 1000);
+
+        List<String> triggeredTasks = taskTriggerListener.getTriggeredTasks();
+        assertThat("Triggered tasks count", triggeredTasks.size(), is(19));
+        assertThat("Unscheduled task triggered", triggeredTasks.contains("task0"), is(false));
+    }
+
+    @Test
+    public void reportsMetrics() throws InterruptedException {
+        List<Long> backlogSizes = new CopyOnWriteArrayList<>();
+        AtomicInteger claimedTasks = new AtomicInteger();
+        List<Long> lateness = new CopyOnWriteArrayList<>();
+        CountDownLatch executedTasks = new CountDownLatch(2);
+
+        newScheduler("measured-scheduler", s -> {
+            s.setBacklogSampleIntervalMillis(1);
+            s.setMetrics(new SchedulerMetrics() {
+                @Override
+                public void polled(int claimed, long roundTripNanos) {
+                    claimedTasks.addAndGet(claimed);
+                }
+
+                @Override
+                public void taskClaimed(long latenessMillis) {
+                    lateness.add(latenessMillis);
+                }
+
+                @Override
+                public void taskExecuted(long durationNanos, boolean failed) {
+                    executedTasks.countDown();
+                }
+
+                @Override
+                public void backlogSampled(long size, long latenessMillis) {
+                    backlogSizes.add(size);
+                }
+            });
+            s.scheduleAt("task1", clock.in(1, HOURS));
+            s.scheduleAt("task2", clock.in(1, HOURS));
+        });
+        clock.fastForward(2, HOURS);
+
+        checkExactTasksTriggered("task1", "task2");
+        assertThat("First backlog size", backlogSizes.get(0), is(2L));
+        assertThat("Claimed tasks", claimedTasks.get(), is(2));
+        assertThat("Lateness of claimed tasks", lateness, is(asList(HOURS.toMillis(1), HOURS.toMillis(1))));
+        assertThat("Executed tasks", executedTasks.await(1, SECONDS), is(true));
+    }
+
+    @Test
+    public void leasedTaskIsExecutedAgainOnlyWhenNotAcknowledged() throws InterruptedException {
+        AtomicBoolean failedOnce = new AtomicBoolean();
+        RedisTaskScheduler leasingScheduler = newScheduler("leasing-scheduler", taskId -> {
+            taskTriggerListener.taskTriggered(taskId);
+            if (taskId.equals("flaky") && failedOnce.compareAndSet(false, true)) {
+                throw new IllegalStateException("Failing on first execution");
+            }
+        }, s -> {
+            s.setLeaseDurationMillis(60000);
+            s.setLeaseReapIntervalMillis(1);
+        });
+        leasingScheduler.scheduleAt("successful", clock.in(1, HOURS));
+        leasingScheduler.scheduleAt("flaky", clock.in(2, HOURS));
+        clock.fastForward(2, HOURS);
+        checkExactTasksTriggered("successful", "flaky");
+
+        clock.fastForward(2, MINUTES);
+
+        checkOnlyTasksTriggered("successful", "flaky", "flaky");
+    }
+
+    @Test
+    public void leasedTaskRescheduledAtAnotherPriorityIsNotRequeued() throws InterruptedException {
+        RedisTaskScheduler leasingScheduler = failingLeasingScheduler(s -> s.setPriorityLevels(2));
+        leasingScheduler.scheduleAt("task", clock.in(1, HOURS));
+        clock.fastForward(1, HOURS);
+        checkExactTasksTriggered("task");
+
+        leasingScheduler.scheduleAt("task", clock.in(2, HOURS), 1);
+        clock.fastForward(2, MINUTES);
+        checkOnlyTasksTriggered("task");
+
+        clock.fastForward(2, HOURS);
+        checkExactTasksTriggered("task", "task");
+    }
+
+    @Test
+    public void leasedTaskRescheduledInAColdBucketIsNotRequeued() throws InterruptedException {
+        RedisTaskScheduler leasingScheduler = failingLeasingScheduler(s -> s.setColdBucketMillis(60000));
+        leasingScheduler.scheduleAt("task", clock.in(1, HOURS));
+        clock.fastForward(1, HOURS);
+        checkExactTasksTriggered("task");
+
+        leasingScheduler.scheduleAt("task", clock.in(2, HOURS));
+        clock.fastForward(2, MINUTES);
+        checkOnlyTasksTriggered("task");
+
+        clock.fastForward(2, HOURS);
+        checkExactTasksTriggered("task", "task");
+    }
+
+    /**
+     * @return a started scheduler leasing tasks for a minute, whose listener always fails so that leases are never
+     * acknowledged.
+     */
+    private RedisTaskScheduler failingLeasingScheduler(Consumer<RedisTaskScheduler> configurer) {
+        return newScheduler("leasing-scheduler", taskId -> {
+            taskTriggerListener.taskTriggered(taskId);
+            throw new IllegalStateException("Always failing");
+        }, s -> {
+            s.setLeaseDurationMillis(60000);
+            s.setLeaseReapIntervalMillis(1);
+            configurer.accept(s);
+        });
+    }
+
+    @Test
+    public void expiredLeasesAreReapedInBatches() throws InterruptedException {
+        Set<String> failedTasks = ConcurrentHashMap.newKeySet();
+        RedisTaskScheduler leasingScheduler = newScheduler("reaping-scheduler", taskId -> {
+            taskTriggerListener.taskTriggered(taskId);
+            if (failedTasks.add(taskId)) {
+                throw new IllegalStateException("Failing on first execution");
+            }
+        }, s -> {
+            s.setLeaseDurationMillis(60000);
+            s.setLeaseReapIntervalMillis(1);
+            s.setLeaseReapBatchSize(10);
+        });
+        Map<String, Instant> triggerTimes = new LinkedHashMap<>();
+        for (int i = 0; i < 25; i++) {
+            triggerTimes.put("task" + i, clock.in(1, HOURS));
+        }
+        leasingScheduler.scheduleAll(triggerTimes);
+        clock.fastForward(1, HOURS);
+        taskTriggerListener.waitUntilTriggeredCount(25, 1000);
+
+        clock.fastForward(2, MINUTES);
+
+        taskTriggerListener.waitUntilTriggeredCount(50, 1000);
+        assertThat("Triggered tasks count", taskTriggerListener.getTriggeredTasks().size(), is(50));
+    }
+
+    @Test
+    public void payloadsAreHandedToListener() throws InterruptedException {
+        RedisTaskScheduler payloadScheduler = newScheduler("payload-scheduler", PayloadTriggerListener.decoding(
+                PayloadCodec.utf8(), (taskId, payload) -> taskTriggerListener.taskTriggered(taskId + ":" + payload)),
+                s -> s.setTaskPayloads(true));
+        payloadScheduler.scheduleAt("with", clock.in(1, HOURS), PayloadCodec.utf8().encode("hello"));
+        payloadScheduler.scheduleAt("without", clock.in(2, HOURS));
+        payloadScheduler.scheduleAt("unscheduled", clock.in(3, HOURS), PayloadCodec.utf8().encode("removed"));
+        payloadScheduler.unschedule("unscheduled");
+        payloadScheduler.scheduleAt("unscheduled", clock.in(3, HOURS));
+        clock.fastForward(3, HOURS);
+
+        checkExactTasksTriggered("with:hello", "without:null", "unscheduled:null");
+    }
+
+    @Test
+    public void leasedPayloadsAreKeptUntilAcknowledged() throws InterruptedException {
+        AtomicBoolean failedOnce = new AtomicBoolean();
+        RedisTaskScheduler payloadScheduler = newScheduler("leased-payload-scheduler", PayloadTriggerListener.decoding(
+                PayloadCodec.utf8(), (taskId, payload) -> {
+                    taskTriggerListener.taskTriggered(taskId + ":" + payload);
+                    if (failedOnce.compareAndSet(false, true)) {
+                        throw new IllegalStateException("Failing on first execution");
+                    }
+                }), s -> {
+            s.setTaskPayloads(true);
+            s.setLeaseDurationMillis(60000);
+            s.setLeaseReapIntervalMillis(1);
+        });
+        payloadScheduler.scheduleAt("task", clock.in(1, HOURS), PayloadCodec.utf8().encode("hello"));
+        clock.fastForward(1, HOURS);
+        checkExactTasksTriggered("task:hello");
+
+        clock.fastForward(2, MINUTES);
+
+        checkExactTasksTriggered("task:hello", "task:hello");
+    }
+
+    @Test
+    public void canTriggerFixedRateTaskUntilUnscheduled() throws InterruptedException {
+        scheduler.scheduleRecurring("recurring", Recurrence.fixedRate(Duration.ofMinutes(10)));
+        clock.fastForward(10, MINUTES);
+        checkExactTasksTriggered("recurring");
+
+        clock.fastForward(10, MINUTES);
+        checkExactTasksTriggered("recurring", "recurring");
+
+        // missed occurrences are skipped
+        clock.fastForward(1, HOURS);
+        checkOnlyTasksTriggered("recurring", "recurring", "recurring");
+
+        scheduler.unschedule("recurring");
+        clock.fastForward(1, HOURS);
+        checkOnlyTasksTriggered("recurring", "recurring", "recurring");
+    }
+
+    @Test
+    public void recurringTaskScheduledOnceStopsRecurring() throws InterruptedException {
+        scheduler.scheduleRecurring("recurring", Recurrence.fixedRate(Duration.ofMinutes(10)));
+        scheduler.scheduleAt("recurring", clock.in(30, MINUTES));
+        clock.fastForward(30, MINUTES);
+        checkExactTasksTriggered("recurring");
+
+        clock.fastForward(1, HOURS);
+        checkOnlyTasksTriggered("recurring");
+    }
+
+    @Test
+    public void canTriggerCronTask() throws InterruptedException {
+        scheduler.scheduleRecurring("hourly", Recurrence.cron("0 * * * *"));
+        scheduler.scheduleAt("once", clock.in(90, MINUTES));
+        clock.fastForward(1, HOURS);
+        checkExactTasksTriggered("hourly");
+
+        clock.fastForward(1, HOURS);
+        checkExactTasksTriggered("hourly", "once", "hourly");
+
+        clock.fastForward(30, MINUTES);
+        checkOnlyTasksTriggered("hourly", "once", "hourly");
+    }
+
+    @Test
+    public void partitionedInstancesSplitShards() throws InterruptedException {
+        RedisTaskScheduler first = partitionedScheduler();
+        RedisTaskScheduler second = partitionedScheduler();
+        waitUntilOwnedShards(first, 2);
+        waitUntilOwnedShards(second, 2);
+        assertThat("Shared shards", IntStream.of(first.ownedShards()).anyMatch(
+                shard -> IntStream.of(second.ownedShards()).anyMatch(other -> other == shard)), is(false));
+
+        Map<String, Instant> triggerTimes = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            triggerTimes.put("task" + i, clock.in(1, HOURS));
+        }
+        first.scheduleAll(triggerTimes);
+        clock.fastForward(1, HOURS);
+
+        taskTriggerListener.waitUntilTriggeredCount(20, 1000);
+        Thread.sleep(200);
+        assertThat("Triggered tasks count", taskTriggerListener.getTriggeredTasks().size(), is(20));
+
+        second.stop();
+        waitUntilOwnedShards(first, 4);
+    }
+
+    @Test
+    public void lookaheadClaimsBufferedTasksAtTriggerTime() throws InterruptedException {
+        RedisTaskScheduler lookaheadScheduler = newScheduler("lookahead-scheduler", s -> {
+            s.setLookaheadMillis(5000);
+            s.setLookaheadBufferSize(3);
+            s.scheduleAt("first", clock.in(1, SECONDS));
+            s.scheduleAt("unscheduled", clock.in(2, SECONDS));
+            s.scheduleAt("second", clock.in(3, SECONDS));
+            s.scheduleAt("later", clock.in(1, HOURS));
+        });
+        // lets the poller fill its buffer before unscheduling a buffered task.
+        Thread.sleep(200);
+        lookaheadScheduler.unschedule("unscheduled");
+
+        clock.fastForward(2, SECONDS);
+        checkOnlyTasksTriggered("first");
+
+        clock.fastForward(1, SECONDS);
+        checkExactTasksTriggered("first", "second");
+
+        clock.fastForward(1, HOURS);
+        checkExactTasksTriggered("first", "second", "later");
+    }
+
+    @Test
+    public void dueTasksOfHigherPriorityAreTriggeredFirst() throws InterruptedException {
+        RedisTaskScheduler priorityScheduler = newScheduler("priority-scheduler", s -> {
+            s.setPriorityLevels(3);
+            s.setClaimBatchSize(10);
+        });
+        priorityScheduler.scheduleAt("bulk1", clock.in(1, MINUTES));
+        priorityScheduler.scheduleAt("bulk2", clock.in(2, MINUTES), 0);
+        priorityScheduler.scheduleAt("normal", clock.in(3, MINUTES), 1);
+        priorityScheduler.scheduleAt("urgent", clock.in(4, MINUTES), 2);
+        priorityScheduler.scheduleAt("demoted", clock.in(5, MINUTES), 2);
+        priorityScheduler.scheduleAt("demoted", clock.in(5, MINUTES), 0);
+        priorityScheduler.scheduleAt("unscheduled", clock.in(5, MINUTES), 2);
+        priorityScheduler.unschedule("unscheduled");
+        clock.fastForward(1, HOURS);
+
+        checkExactTasksTriggered("urgent", "normal", "bulk1", "bulk2", "demoted");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void schedulingAtUnknownPriorityRaisesException() {
+        scheduler.scheduleAt("mytask", clock.in(1, HOURS), 1);
+    }
+
+    @Test
+    public void tasksOverTheRateOfTheirTypeStayScheduled() throws InterruptedException {
+        RedisTaskScheduler limitedScheduler = newScheduler("limited-scheduler", s -> {
+            s.setClaimBatchSize(10);
+            s.setTaskLimit("api", TaskLimit.rate(2, Duration.ofHours(1)));
+        });
+        limitedScheduler.scheduleAt("api:1", clock.in(1, MINUTES));
+        limitedScheduler.scheduleAt("api:2", clock.in(2, MINUTES));
+        limitedScheduler.scheduleAt("api:3", clock.in(3, MINUTES));
+        limitedScheduler.scheduleAt("other:1", clock.in(4, MINUTES));
+        limitedScheduler.scheduleAt("untyped", clock.in(5, MINUTES));
+        clock.fastForward(1, HOURS);
+        checkOnlyTasksTriggered("api:1", "api:2", "other:1", "untyped");
+
+        clock.fastForward(31, MINUTES);
+        checkExactTasksTriggered("api:1", "api:2", "other:1", "untyped", "api:3");
+    }
+
+    @Test
+    public void tasksOverTheMaxInFlightOfTheirTypeWaitForRunningTasks() throws InterruptedException {
+        List<String> triggeredTasks = new CopyOnWriteArrayList<>();
+        RedisTaskScheduler limitedScheduler = newScheduler("limited-scheduler", taskId -> {
+            triggeredTasks.add(taskId);
+            if (taskId.startsWith("slow:")) {
+                slowTasksReleased.join();
+            }
+        }, s -> {
+            s.setTaskExecutorThreads(2);
+            s.setTaskLimit("slow", TaskLimit.maxInFlight(1));
+        });
+        limitedScheduler.scheduleAt("slow:1", clock.in(1, MINUTES));
+        limitedScheduler.scheduleAt("slow:2", clock.in(2, MINUTES));
+        limitedScheduler.scheduleAt("fast:1", clock.in(3, MINUTES));
+        clock.fastForward(1, HOURS);
+        Thread.sleep(1000);
+        assertThat("Triggered tasks", new HashSet<>(triggeredTasks), is(new HashSet<>(asList("slow:1", "fast:1"))));
+
+        slowTasksReleased.complete(null);
+        for (int i = 0; i < 100 && triggeredTasks.size() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertThat("Triggered tasks", triggeredTasks.get(triggeredTasks.size() - 1), is("slow:2"));
+    }
+
+    @Test
+    public void shardsNeverRunMoreTasksInFlightThanTheMaximumOfTheirType() throws InterruptedException {
+        newScheduler("limited-scheduler", taskId -> {
+            taskTriggerListener.taskTriggered(taskId);
+            slowTasksReleased.join();
+        }, s -> {
+            s.setShards(4);
+            s.setClaimBatchSize(10);
+            s.setTaskExecutorThreads(10);
+            s.setTaskLimit("slow", TaskLimit.maxInFlight(6));
+            Map<String, Instant> triggerTimes = new LinkedHashMap<>();
+            for (int i = 0; i < 20; i++) {
+                triggerTimes.put("slow:" + i, clock.in(1, MINUTES));
+            }
+            s.scheduleAll(triggerTimes);
+        });
+        clock.fastForward(1, HOURS);
+        Thread.sleep(1000);
+
+        assertThat("Tasks in flight", taskTriggerListener.getTriggeredTasks().size(), is(4));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void maxInFlightLowerThanTheNumberOfShardsIsRefused() {
+        newScheduler("limited-scheduler", s -> {
+            s.setShards(4);
+            s.setTaskLimit("slow", TaskLimit.maxInFlight(3));
+        });
+    }
+
+    @Test
+    public void adaptivePollingDoesNotSpinOnTasksHeldBackByTheirLimit() throws InterruptedException {
+        AtomicInteger polls = new AtomicInteger();
+        RedisTaskScheduler limitedScheduler = limitedScheduler(polls, s -> s.setAdaptivePolling(true));
+
+        checkPollsWhileHeldBack(limitedScheduler, polls);
+    }
+
+    @Test
+    public void engineDoesNotSpinOnTasksHeldBackByTheirLimit() throws InterruptedException {
+        SchedulerEngine engine = newEngine();
+        AtomicInteger polls = new AtomicInteger();
+        RedisTaskScheduler limitedScheduler = limitedScheduler(polls, s -> s.setEngine(engine));
+
+        checkPollsWhileHeldBack(limitedScheduler, polls);
+    }
+
+    @Test
+    public void pastTaskScheduledAfterAnEmptyPollIsNotHeldBack() throws InterruptedException {
+        RedisTaskScheduler limitedScheduler = limitedScheduler(new AtomicInteger(), s -> {
+            s.setAdaptivePolling(true);
+            s.setPollingDelayMillis(10000);
+        });
+
+        checkPastTaskNotHeldBack(limitedScheduler);
+    }
+
+    @Test
+    public void engineDoesNotHoldBackPastTaskScheduledAfterAnEmptyPoll() throws InterruptedException {
+        SchedulerEngine engine = newEngine();
+        RedisTaskScheduler limitedScheduler = limitedScheduler(new AtomicInteger(), s -> {
+            s.setPollingDelayMillis(10000);
+            s.setEngine(engine);
+        });
+
+        checkPastTaskNotHeldBack(limitedScheduler);
+    }
+
+    /**
+     * Checks that a task scheduled in the past is triggered right away, although a task held back by its limit was
+     * due by the last poll, which claimed nothing.
+     */
+    private void checkPastTaskNotHeldBack(RedisTaskScheduler limitedScheduler) throws InterruptedException {
+        // tasks scheduled in the past wake the poller up, whether it polled already or not.
+        limitedScheduler.scheduleAt("slow:1", clock.in(-3, MINUTES));
+        limitedScheduler.scheduleAt("slow:2", clock.in(-2, MINUTES));
+        taskTriggerListener.waitUntilTriggeredCount(1, 1000);
+        Thread.sleep(200);
+
+        limitedScheduler.scheduleAt("fast:1", clock.in(-1, MINUTES));
+        checkExactTasksTriggered("slow:1", "fast:1");
+    }
+
+    /**
+     * @return a started scheduler running one <code>slow</code> task at a time, until slow tasks are released.
+     */
+    private RedisTaskScheduler limitedScheduler(AtomicInteger polls, Consumer<RedisTaskScheduler> configurer) {
+        return newScheduler("limited-scheduler", taskId -> {
+            taskTriggerListener.taskTriggered(taskId);
+            slowTasksReleased.join();
+        }, s -> {
+            s.setTaskExecutorThreads(2);
+            s.setTaskLimit("slow", TaskLimit.maxInFlight(1));
+            s.setMetrics(new SchedulerMetrics() {
+                @Override
+                public void polled(int claimedTasks, long roundTripNanos) {
+                    polls.incrementAndGet();
+                }
+            });
+            configurer.accept(s);
+        });
+    }
+
+    /**
+     * Checks that a due task held back by its limit is polled about once per polling delay, rather than continuously.
+     */
+    private void checkPollsWhileHeldBack(RedisTaskScheduler limitedScheduler, AtomicInteger polls) throws InterruptedException {
+        limitedScheduler.scheduleAt("slow:1", clock.in(1, MINUTES));
+        limitedScheduler.scheduleAt("slow:2", clock.in(2, MINUTES));
+        clock.fastForward(1, HOURS);
+        Thread.sleep(200);
+
+        polls.set(0);
+        Thread.sleep(500);
+        assertThat("Polls while held back", polls.get() <= 20, is(true));
+    }
+
+    @Test
+    public void failedTasksAreRetriedUntilDeadLettered() throws InterruptedException {
+        RedisTaskScheduler retryingScheduler = newScheduler("retrying-scheduler", taskId -> {
+            taskTriggerListener.taskTriggered(taskId);
+            if (taskId.equals("failing")) {
+                throw new IllegalStateException("Always failing");
+            }
+        }, s -> s.setRetryPolicy(RetryPolicy.exponentialBackoff(3, Duration.ofMinutes(1), Duration.ofMinutes(10))
+                                            .withJitter(0)));
+        retryingScheduler.scheduleAt("failing", clock.in(1, MINUTES));
+        retryingScheduler.scheduleAt("successful", clock.in(2, MINUTES));
+        clock.fastForward(1, HOURS);
+        checkExactTasksTriggered("failing", "successful");
+
+        // waiting for each retry to be scheduled before moving the clock forward.
+        clock.fastForward(1, MINUTES);
+        checkOnlyTasksTriggered("failing", "successful", "failing");
+
+        clock.fastForward(1, MINUTES);
+        checkOnlyTasksTriggered("failing", "successful", "failing");
+
+        clock.fastForward(1, MINUTES);
+        checkOnlyTasksTriggered("failing", "successful", "failing", "failing");
+        assertThat("Dead letters", retryingScheduler.deadLetters(10).keySet(), is(singleton("failing")));
+        assertThat("Dead letter count", retryingScheduler.deadLetterCount(), is(1L));
+
+        assertThat("Replayed tasks", retryingScheduler.replayAllDeadLetters(), is(1));
+        checkExactTasksTriggered("failing", "successful", "failing", "failing", "failing");
+        assertThat("Dead letter count", retryingScheduler.deadLetterCount(), is(0L));
+    }
+
+    @Test
+    public void deadLetterRescheduledAtAnotherPriorityIsNotReplayedTwice() throws InterruptedException {
+        RedisTaskScheduler retryingScheduler = newScheduler("retrying-scheduler", taskId -> {
+            taskTriggerListener.taskTriggered(taskId);
+            throw new IllegalStateException("Always failing");
+        }, s -> {
+            s.setPriorityLevels(2);
+            s.setRetryPolicy(RetryPolicy.exponentialBackoff(1, Duration.ofMinutes(1), Duration.ofMinutes(1)));
+        });
+        retryingScheduler.scheduleAt("failing", clock.in(1, MINUTES));
+        clock.fastForward(1, HOURS);
+        checkExactTasksTriggered("failing");
+        for (int i = 0; i < 100 && retryingScheduler.deadLetterCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        retryingScheduler.scheduleAt("failing", clock.in(1, HOURS), 1);
+        assertThat("Replayed tasks", retryingScheduler.replayAllDeadLetters(), is(1));
+        checkOnlyTasksTriggered("failing");
+
+        clock.fastForward(1, HOURS);
+        checkOnlyTasksTriggered("failing", "failing");
+    }
+
+    @Test
+    public void failedTaskRescheduledInAColdBucketIsNotRetried() throws InterruptedException {
+        AtomicReference<RedisTaskScheduler> self = new AtomicReference<>();
+        RedisTaskScheduler retryingScheduler = newScheduler("retrying-scheduler", taskId -> {
+            taskTriggerListener.taskTriggered(taskId);
+            self.get().scheduleAt(taskId, clock.in(2, HOURS));
+            throw new IllegalStateException("Failing after rescheduling itself");
+        }, s -> {
+            self.set(s);
+            s.setColdBucketMillis(60000);
+            s.setRetryPolicy(RetryPolicy.exponentialBackoff(3, Duration.ofMinutes(1), Duration.ofMinutes(1))
+                                        .withJitter(0));
+        });
+        retryingScheduler.scheduleAt("failing", clock.in(1, MINUTES));
+        clock.fastForward(1, HOURS);
+        // waiting for the failure to be handled before moving the clock forward.
+        checkOnlyTasksTriggered("failing");
+
+        clock.fastForward(10, MINUTES);
+        checkOnlyTasksTriggered("failing");
+    }
+
+    @Test
+    public void compactTaskIdsAreDecodedBeforeTriggering() throws InterruptedException {
+        RedisTaskScheduler compactScheduler = newScheduler("compact-scheduler", s -> s.setTaskIdCodec(TaskIdCodec.compact()));
+        compactScheduler.scheduleAt("email:0f8fad5b-d9cb-469f-a165-70867728950e", clock.in(1, MINUTES));
+        compactScheduler.scheduleAt("order-1234567890", clock.in(2, MINUTES));
+        compactScheduler.scheduleAt("email:7c9e6679-7425-40de-944b-e07fc1f90ae7", clock.in(3, MINUTES));
+        compactScheduler.unschedule("email:7c9e6679-7425-40de-944b-e07fc1f90ae7");
+        clock.fastForward(1, HOURS);
+
+        checkOnlyTasksTriggered("email:0f8fad5b-d9cb-469f-a165-70867728950e", "order-1234567890");
+    }
+
+    @Test
+    public void farTasksAreHeldInColdBucketsUntilShortlyBeforeDue() throws InterruptedException {
+        RedisTaskScheduler tieredScheduler = newScheduler("tiered-scheduler",
+                                                          s -> s.setColdBucketMillis((int) Duration.ofHours(1).toMillis()));
+        tieredScheduler.scheduleAt("soon", clock.in(1, MINUTES));
+        tieredScheduler.scheduleAt("far", clock.in(96, HOURS));
+        tieredScheduler.scheduleAt("moved", clock.in(72, HOURS));
+        tieredScheduler.scheduleAt("moved", clock.in(48, HOURS));
+        tieredScheduler.scheduleAt("dropped", clock.in(72, HOURS));
+        tieredScheduler.unschedule("dropped");
+        assertThat("Polled tasks", driver().fetch(commands -> commands.count("redis-scheduler.tiered-scheduler")), is(1L));
+
+        clock.fastForward(1, HOURS);
+        checkOnlyTasksTriggered("soon");
+
+        clock.fastForward(48, HOURS);
+        checkOnlyTasksTriggered("soon", "moved");
+
+        clock.fastForward(48, HOURS);
+        checkOnlyTasksTriggered("soon", "moved", "far");
+    }
+
+    @Test
+    public void coalescedWritesKeepTheLastWriteOfEachTask() throws InterruptedException {
+        RedisTaskScheduler coalescingScheduler = newScheduler("coalescing-scheduler", s -> s.setWriteCoalescingMillis(100));
+        for (int hours = 1; hours <= 10; hours++) {
+            coalescingScheduler.scheduleAt("debounced", clock.in(hours, HOURS));
+        }
+        coalescingScheduler.scheduleAt("cancelled", clock.in(1, HOURS));
+        coalescingScheduler.unschedule("cancelled");
+        coalescingScheduler.scheduleAt("immediate", clock.in(0, SECONDS));
+        checkExactTasksTriggered("immediate");
+
+        clock.fastForward(9, HOURS);
+        checkOnlyTasksTriggered("immediate");
+
+        clock.fastForward(1, HOURS);
+        checkExactTasksTriggered("immediate", "debounced");
+    }
+
+    @Test
+    public void engineTriggersTasksOfHostedSchedulers() throws InterruptedException {
+        SchedulerEngine engine = newEngine(e -> e.setMaxProbeDelayMillis(50));
+        List<RedisTaskScheduler> tenants = IntStream.range(0, 3)
+                                                    .mapToObj(tenant -> newScheduler("tenant-" + tenant, s -> s.setEngine(engine)))
+                                                    .collect(toList());
+        tenants.get(0).scheduleAt("first", clock.in(1, MINUTES));
+        tenants.get(2).scheduleAt("third", clock.in(90, MINUTES));
+        tenants.get(1).scheduleAt("second", clock.in(3, HOURS));
+        // tasks of different schedulers are due one hour apart, as they may be polled in any order.
+        clock.fastForward(1, HOURS);
+        checkOnlyTasksTriggered("first");
+
+        clock.fastForward(1, HOURS);
+        checkOnlyTasksTriggered("first", "third");
+
+        clock.fastForward(1, HOURS);
+        checkExactTasksTriggered("first", "third", "second");
+    }
+
+    @Test
+    public void engineKeepsPollingOtherSchedulersWhileOneIsSaturated() throws InterruptedException {
+        SchedulerEngine engine = newEngine(e -> e.setMaxProbeDelayMillis(50));
+        RedisTaskScheduler saturated = newScheduler("saturated-tenant", taskId -> {
+            taskTriggerListener.taskTriggered(taskId);
+            slowTasksReleased.join();
+        }, s -> {
+            s.setTaskExecutorThreads(1);
+            s.setMaxPendingTasks(1);
+            s.setEngine(engine);
+        });
+        RedisTaskScheduler other = newScheduler("other-tenant", s -> s.setEngine(engine));
+        saturated.scheduleAt("slow:1", clock.in(1, MINUTES));
+        saturated.scheduleAt("slow:2", clock.in(2, MINUTES));
+        clock.fastForward(1, HOURS);
+        checkOnlyTasksTriggered("slow:1");
+
+        other.scheduleAt("other", clock.in(1, MINUTES));
+        clock.fastForward(1, HOURS);
+        checkOnlyTasksTriggered("slow:1", "other");
+
+        slowTasksReleased.complete(null);
+        checkExactTasksTriggered("slow:1", "other", "slow:2");
+    }
+
+    private RedisTaskScheduler partitionedScheduler() {
+        return newScheduler("partitioned-scheduler", s -> {
+            s.setShards(4);
+            s.setPartitionedShards(true);
+            s.setHeartbeatIntervalMillis(50);
+        });
+    }
+
+    /**
+     * Creates and starts an additional scheduler, stopped once the test is over. It uses the stubbed clock and polls
+     * every 50ms, unless the configurer, called before starting it, says otherwise.
+     */
+    RedisTaskScheduler newScheduler(String name, Consumer<RedisTaskScheduler> configurer) {
+        return newScheduler(name, taskTriggerListener, configurer);
+    }
+
+    RedisTaskScheduler newScheduler(String name, TaskTriggerListener listener, Consumer<RedisTaskScheduler> configurer) {
+        RedisTaskScheduler newScheduler = new RedisTaskScheduler(driver(), listener);
+        newScheduler.setSchedulerName(name);
+        newScheduler.setClock(clock);
+        newScheduler.setPollingDelayMillis(50);
+        configurer.accept(newScheduler);
+        newSchedulers.add(newScheduler);
+        newScheduler.start();
+        return newScheduler;
+    }
+
+    SchedulerEngine newEngine() {
+        return newEngine(engine -> {
+        });
+    }
+
+    /**
+     * Creates and starts an engine with a single poller thread, closed once the test is over.
+     */
+    SchedulerEngine newEngine(Consumer<SchedulerEngine> configurer) {
+        SchedulerEngine engine = new SchedulerEngine(driver());
+        engine.setPollerThreads(1);
+        configurer.accept(engine);
+        newEngines.add(engine);
+        engine.start();
+        return engine;
+    }
+
+    private static void waitUntilOwnedShards(RedisTaskScheduler scheduler, int shards) throws InterruptedException {
+        for (int i = 0; i < 100 && scheduler.ownedShards().length != shards; i++) {
+            Thread.sleep(10);
+        }
+        assertThat("Owned shards", scheduler.ownedShards().length, is(shards));
+    }
+
     private void checkExactTasksTriggered(String... tasks) throws InterruptedException {
         taskTriggerListener.waitUntilTriggeredCount(tasks.length, 1000);
 
         assertTasksTriggered(tasks);
     }
 
-    private void checkOnlyTasksTriggered(String... tasks) throws InterruptedException {
+    void checkOnlyTasksTriggered(String... tasks) throws InterruptedException {
         // if only a subset of the scheduled tasks are expected to be triggered, then we need to wait for a while.
         Thread.sleep(1000);
 
@@ -0,0 +1,58 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class CircuitBreakerTest {
+
+    private AtomicLong nanoTime = new AtomicLong();
+    private CircuitBreaker breaker = new CircuitBreaker(100, 300, nanoTime::get);
+
+    @Test
+    public void opensOnFailureUntilBackoffElapsed() {
+        assertThat(breaker.state(), is(CircuitState.CLOSED));
+
+        breaker.recordFailure();
+        assertThat(breaker.state(), is(CircuitState.OPEN));
+        assertThat(breaker.remainingOpenMillis(), allOf(greaterThanOrEqualTo(50L), lessThanOrEqualTo(101L)));
+
+        advanceMillis(100);
+        assertThat(breaker.state(), is(CircuitState.HALF_OPEN));
+        assertThat(breaker.remainingOpenMillis(), is(0L));
+    }
+
+    @Test
+    public void doublesBackoffOnConsecutiveFailuresUpToMaximum() {
+        breaker.recordFailure();
+        advanceMillis(100);
+        breaker.recordFailure();
+        assertThat(breaker.remainingOpenMillis(), allOf(greaterThanOrEqualTo(100L), lessThanOrEqualTo(201L)));
+
+        advanceMillis(200);
+        breaker.recordFailure();
+        assertThat(breaker.remainingOpenMillis(), allOf(greaterThanOrEqualTo(150L), lessThanOrEqualTo(301L)));
+    }
+
+    @Test
+    public void closesOnSuccess() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        assertThat(breaker.state(), is(CircuitState.CLOSED));
+
+        breaker.recordFailure();
+        assertThat(breaker.remainingOpenMillis(), lessThanOrEqualTo(101L));
+    }
+
+    private void advanceMillis(long millis) {
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
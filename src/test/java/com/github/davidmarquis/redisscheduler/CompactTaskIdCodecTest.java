@@ -0,0 +1,48 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CompactTaskIdCodecTest {
+
+    private TaskIdCodec codec = TaskIdCodec.compact();
+
+    @Test
+    public void shortensTrailingUuids() {
+        String encoded = codec.encode("email:0f8fad5b-d9cb-469f-a165-70867728950e");
+
+        assertThat(encoded.length(), is("email:".length() + 23));
+        assertThat(encoded.startsWith("email:"), is(true));
+        assertThat(codec.decode(encoded), is("email:0f8fad5b-d9cb-469f-a165-70867728950e"));
+    }
+
+    @Test
+    public void shortensTrailingNumbers() {
+        String encoded = codec.encode("order-00123456789012345678");
+
+        assertThat(encoded.length() < "order-00123456789012345678".length(), is(true));
+        assertThat(codec.decode(encoded), is("order-00123456789012345678"));
+    }
+
+    @Test
+    public void keepsOtherIdsAsTheyAre() {
+        assertThat(codec.encode("task"), is("task"));
+        assertThat(codec.encode("task-12"), is("task-12"));
+        assertThat(codec.encode("0F8FAD5B-D9CB-469F-A165-70867728950E"), is("0F8FAD5B-D9CB-469F-A165-70867728950E"));
+        assertThat(codec.decode("task"), is("task"));
+    }
+
+    @Test
+    public void escapesIdsLookingEncoded() {
+        String[] ids = {"task#", "#", "a=BC", "=Bad", "prefix#ABCDEFGHIJKLMNOPQRSTUV", "", "task##",
+                        codec.encode("0f8fad5b-d9cb-469f-a165-70867728950e"), codec.encode("1234567890")};
+        for (String id : ids) {
+            String encoded = codec.encode(id);
+
+            assertThat(id, codec.decode(encoded), is(id));
+        }
+        assertThat(codec.encode("a=BC"), is("a=BC#"));
+    }
+}
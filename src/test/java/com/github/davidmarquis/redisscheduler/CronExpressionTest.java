@@ -0,0 +1,78 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.junit.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CronExpressionTest {
+
+    @Test
+    public void matchesEveryMinute() {
+        assertNext("* * * * *", "2018-04-05T10:00:30Z", "2018-04-05T10:01Z");
+    }
+
+    @Test
+    public void isStrictlyAfterGivenTime() {
+        assertNext("0 * * * *", "2018-04-05T10:00Z", "2018-04-05T11:00Z");
+    }
+
+    @Test
+    public void supportsStepsRangesAndLists() {
+        assertNext("*/15 9-17 * * *", "2018-04-05T17:50Z", "2018-04-06T09:00Z");
+        assertNext("5,35 * * * *", "2018-04-05T10:06Z", "2018-04-05T10:35Z");
+    }
+
+    @Test
+    public void supportsNamesAndSundayAsSeven() {
+        assertNext("0 0 * * sun", "2018-04-05T10:00Z", "2018-04-08T00:00Z");
+        assertNext("0 0 * * 7", "2018-04-05T10:00Z", "2018-04-08T00:00Z");
+        assertNext("0 0 1 jan *", "2018-04-05T10:00Z", "2019-01-01T00:00Z");
+    }
+
+    @Test
+    public void matchesEitherDayFieldWhenBothAreRestricted() {
+        assertNext("0 0 13 * FRI", "2018-04-05T10:00Z", "2018-04-06T00:00Z");
+        assertNext("0 0 13 * FRI", "2018-04-06T10:00Z", "2018-04-13T00:00Z");
+    }
+
+    @Test
+    public void tellsRestrictedDayFieldsByTheirValues() {
+        // every other day of month, or Fridays.
+        assertNext("0 0 */2 * FRI", "2018-04-05T10:00Z", "2018-04-06T00:00Z");
+        assertNext("0 0 */2 * FRI", "2018-04-06T10:00Z", "2018-04-07T00:00Z");
+        // every day of week is unrestricted, so only days of month matter.
+        assertNext("0 0 13 * 0-6", "2018-04-05T10:00Z", "2018-04-13T00:00Z");
+        assertNext("0 0 1-31 * MON", "2018-04-05T10:00Z", "2018-04-09T00:00Z");
+    }
+
+    @Test
+    public void skipsMonthsWithoutMatchingDay() {
+        assertNext("0 0 31 * *", "2018-04-05T10:00Z", "2018-05-31T00:00Z");
+        assertNext("0 0 29 2 *", "2018-04-05T10:00Z", "2020-02-29T00:00Z");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOutOfRangeValues() {
+        CronExpression.parse("60 * * * *");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingFields() {
+        CronExpression.parse("* * * *");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failsWhenNeverMatching() {
+        CronExpression.parse("0 0 31 2 *").next(ZonedDateTime.parse("2018-04-05T10:00Z"));
+    }
+
+    private static void assertNext(String expression, String after, String expected) {
+        ZonedDateTime next = CronExpression.parse(expression).next(ZonedDateTime.parse(after));
+
+        assertThat(next.withZoneSameInstant(ZoneOffset.UTC), is(ZonedDateTime.parse(expected)));
+    }
+}
@@ -3,8 +3,27 @@ package com.github.davidmarquis.redisscheduler;
 import com.github.davidmarquis.redisscheduler.drivers.jedis.JedisDriver;
 import org.junit.After;
 import org.junit.AfterClass;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
 public class JedisIntegrationTest extends AcceptanceTestSuite {
 
     private static final JedisPool pool = new JedisPool("localhost", 6379);
@@ -18,6 +37,112 @@ public class JedisIntegrationTest extends AcceptanceTestSuite {
         scheduler.start();
     }
 
+    @Override
+    protected RedisDriver driver() {
+        return new JedisDriver(pool);
+    }
+
+    @Test
+    public void keepsPollingAndBuffersWritesWhileRedisIsUnreachable() throws Exception {
+        AtomicInteger retries = new AtomicInteger();
+        JedisPool unreachablePool = new JedisPool("localhost", unusedPort());
+        RedisTaskScheduler unreachable = new RedisTaskScheduler(new JedisDriver(unreachablePool), taskTriggerListener);
+        unreachable.setSchedulerName("unreachable-scheduler");
+        unreachable.setPollingDelayMillis(50);
+        unreachable.setWriteBufferSize(1);
+        unreachable.setMetrics(new SchedulerMetrics() {
+            @Override
+            public void connectionRetried() {
+                retries.incrementAndGet();
+            }
+        });
+
+        try {
+            unreachable.start();
+            unreachable.scheduleAt("buffered", Instant.now());
+            Thread.sleep(1000);
+
+            assertThat(unreachable.circuitState(), is(not(CircuitState.CLOSED)));
+            assertThat(retries.get() > 1, is(true));
+        } finally {
+            unreachable.stop();
+            unreachablePool.close();
+        }
+    }
+
+    @Test
+    public void worksWithDriverImplementingOnlyRequiredCommands() throws InterruptedException {
+        List<Long> backlogSizes = new CopyOnWriteArrayList<>();
+        RedisTaskScheduler minimal = new RedisTaskScheduler(new MinimalDriver(), taskTriggerListener);
+        minimal.setSchedulerName("minimal-scheduler");
+        minimal.setClock(clock);
+        minimal.setPollingDelayMillis(50);
+        minimal.setBacklogSampleIntervalMillis(1);
+        minimal.setMetrics(new SchedulerMetrics() {
+            @Override
+            public void backlogSampled(long size, long latenessMillis) {
+                backlogSizes.add(size);
+            }
+        });
+
+        Map<String, Instant> triggerTimes = new LinkedHashMap<>();
+        triggerTimes.put("first", clock.in(1, HOURS));
+        triggerTimes.put("second", clock.in(1, HOURS));
+        triggerTimes.put("third", clock.in(1, HOURS));
+        minimal.scheduleAll(triggerTimes);
+        minimal.unscheduleAll(asList("first", "third"));
+        minimal.start();
+        try {
+            clock.fastForward(2, HOURS);
+
+            checkOnlyTasksTriggered("second");
+            assertThat(backlogSizes, hasItem(1L));
+        } finally {
+            minimal.unscheduleAllTasks();
+            minimal.stop();
+        }
+    }
+
+    /**
+     * Driver implementing only the commands without a default implementation, as third-party drivers may do.
+     */
+    private static class MinimalDriver implements RedisDriver {
+
+        @Override
+        public <T> T fetch(Function<Commands, T> block) {
+            try (Jedis jedis = pool.getResource()) {
+                return block.apply(new Commands() {
+                    @Override
+                    public void addToSetWithScore(String key, String taskId, long score) {
+                        jedis.zadd(key, score, taskId);
+                    }
+
+                    @Override
+                    public void removeFromSet(String key, String taskId) {
+                        jedis.zrem(key, taskId);
+                    }
+
+                    @Override
+                    public void remove(String key) {
+                        jedis.del(key);
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public List<String> evalScript(LuaScript script, List<String> keys, List<String> args) {
+                        return (List<String>) jedis.eval(script.body(), keys, args);
+                    }
+                });
+            }
+        }
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
     @After
     public void stopScheduler() {
         scheduler.stop();
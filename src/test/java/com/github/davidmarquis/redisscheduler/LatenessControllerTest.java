@@ -0,0 +1,51 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class LatenessControllerTest {
+
+    private static final long WINDOW = 1000;
+
+    private LatenessController controller = new LatenessController(100, 10, 1000, WINDOW);
+
+    @Test
+    public void startsWithMaximumDelay() {
+        assertThat(controller.delayMillis(0), is(1000L));
+    }
+
+    @Test
+    public void halvesDelayWhenTargetIsMissed() {
+        controller.delayMillis(0);
+        controller.record(500);
+
+        assertThat("Within window", controller.delayMillis(WINDOW - 1), is(1000L));
+        assertThat("After window", controller.delayMillis(WINDOW), is(500L));
+    }
+
+    @Test
+    public void neverGoesUnderMinimumDelay() {
+        long now = 0;
+        controller.delayMillis(now);
+        for (int i = 0; i < 10; i++) {
+            controller.record(500);
+            now += WINDOW;
+            controller.delayMillis(now);
+        }
+
+        assertThat(controller.delayMillis(now), is(10L));
+    }
+
+    @Test
+    public void raisesDelayBackWhenWellUnderTarget() {
+        controller.delayMillis(0);
+        controller.record(500);
+        controller.delayMillis(WINDOW);
+
+        controller.record(10);
+
+        assertThat(controller.delayMillis(2 * WINDOW), is(550L));
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class LatenessHistogramTest {
+
+    private LatenessHistogram histogram = new LatenessHistogram();
+
+    @Test
+    public void countsSmallValuesExactly() {
+        for (int i = 1; i <= 50; i++) {
+            histogram.record(i);
+        }
+
+        assertThat(histogram.percentile(0.5), is(25L));
+        assertThat(histogram.percentile(1.0), is(50L));
+    }
+
+    @Test
+    public void countsLargeValuesWithinRelativeError() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 100);
+        }
+
+        long p99 = histogram.percentile(0.99);
+        assertThat(p99, greaterThanOrEqualTo(99000L));
+        assertThat(p99, lessThanOrEqualTo(99000L + 99000L / 32));
+    }
+
+    @Test
+    public void isEmptyAfterReset() {
+        histogram.record(100);
+        histogram.reset();
+
+        assertThat(histogram.totalCount(), is(0L));
+        assertThat(histogram.percentile(0.99), is(0L));
+    }
+}
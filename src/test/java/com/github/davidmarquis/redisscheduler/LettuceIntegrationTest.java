@@ -9,16 +9,22 @@ import org.junit.AfterClass;
 public class LettuceIntegrationTest extends AcceptanceTestSuite {
 
     private static final RedisClient client = RedisClient.create(RedisURI.create("localhost", 6379));
+    private static final LettuceDriver driver = new LettuceDriver(client);
 
     @Override
     protected void provideActors() {
-        scheduler = new RedisTaskScheduler(new LettuceDriver(client), taskTriggerListener);
+        scheduler = new RedisTaskScheduler(driver, taskTriggerListener);
         scheduler.setSchedulerName("lettuce-scheduler");
         scheduler.setClock(clock);
         scheduler.setPollingDelayMillis(50);
         scheduler.start();
     }
 
+    @Override
+    protected RedisDriver driver() {
+        return driver;
+    }
+
     @After
     public void stopScheduler() {
         scheduler.stop();
@@ -26,6 +32,7 @@ public class LettuceIntegrationTest extends AcceptanceTestSuite {
 
     @AfterClass
     public static void shutdown() {
+        driver.close();
         client.shutdown();
     }
 }
@@ -4,11 +4,23 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 import static org.mockito.internal.verification.VerificationModeFactory.atLeast;
@@ -23,6 +35,9 @@ public class RedisTaskSchedulerTest {
     @Mock
     private RedisDriver driver;
 
+    @Captor
+    private ArgumentCaptor<Consumer<RedisDriver.Commands>> writes;
+
     private RedisTaskScheduler scheduler;
 
     @Before
@@ -51,11 +66,105 @@ public class RedisTaskSchedulerTest {
     public void canRecoverAfterSingleConnectionError() throws InterruptedException {
         when(driver.fetch(any(Function.class)))
                 .thenThrow(RedisConnectException.class)
-                .thenReturn(true);
+                .thenReturn(emptyList());
 
         scheduler.start();
         Thread.sleep(500);
 
         verify(driver, atLeast(MAX_RETRIES + 1)).fetch( any(Function.class));
     }
+
+    @Test
+    public void reportsConnectionRetriesToMetrics() throws InterruptedException {
+        SchedulerMetrics metrics = mock(SchedulerMetrics.class);
+        scheduler.setMetrics(metrics);
+        doThrow(RedisConnectException.class).when(driver).fetch(any(Function.class));
+
+        scheduler.start();
+        Thread.sleep(500);
+
+        verify(metrics, times(MAX_RETRIES - 1)).connectionRetried();
+    }
+
+    @Test
+    public void buffersWritesWhileRedisIsUnreachable() throws InterruptedException {
+        scheduler.setWriteBufferSize(1);
+        doThrow(RedisConnectException.class).when(driver).execute(any(Consumer.class));
+
+        scheduler.scheduleAt("buffered", Instant.now());
+        assertThat(scheduler.circuitState(), is(CircuitState.OPEN));
+
+        when(driver.fetch(any(Function.class))).thenReturn(emptyList());
+        scheduler.start();
+
+        verify(driver, timeout(1000)).executePipelined(any(Consumer.class));
+    }
+
+    @Test(expected = RedisConnectException.class)
+    public void rejectsWritesOnceBufferIsFull() {
+        scheduler.setWriteBufferSize(1);
+        doThrow(RedisConnectException.class).when(driver).execute(any(Consumer.class));
+
+        scheduler.scheduleAt("buffered", Instant.now());
+        scheduler.scheduleAt("rejected", Instant.now());
+    }
+
+    @Test
+    public void coalescesRepeatedWritesOfTheSameTask() {
+        scheduler.setWriteCoalescingMillis(100);
+        when(driver.fetch(any(Function.class))).thenReturn(emptyList());
+        scheduler.start();
+
+        Instant start = Instant.now().plusSeconds(60);
+        for (int i = 0; i < 10; i++) {
+            scheduler.scheduleAt("debounced", start.plusSeconds(i));
+        }
+        scheduler.scheduleAt("cancelled", start);
+        scheduler.unschedule("cancelled");
+
+        verify(driver, timeout(1000)).executePipelined(writes.capture());
+        verify(driver, never()).execute(any(Consumer.class));
+
+        RedisDriver.Commands commands = mock(RedisDriver.Commands.class);
+        writes.getValue().accept(commands);
+        verify(commands).addAllToSetWithScores(anyString(), eq(singletonMap("debounced", start.plusSeconds(9).toEpochMilli())));
+        verify(commands).removeAllFromSet(anyString(), eq(singletonList("cancelled")));
+    }
+
+    @Test
+    public void retriesCoalescedWritesAfterFailedFlush() {
+        scheduler.setWriteCoalescingMillis(100);
+        when(driver.fetch(any(Function.class))).thenReturn(emptyList());
+        doThrow(RedisConnectException.class).doNothing().when(driver).executePipelined(any(Consumer.class));
+        scheduler.start();
+
+        Instant triggerTime = Instant.now().plusSeconds(60);
+        scheduler.scheduleAt("retried", triggerTime);
+
+        verify(driver, timeout(1000).times(2)).executePipelined(writes.capture());
+        RedisDriver.Commands commands = mock(RedisDriver.Commands.class);
+        writes.getValue().accept(commands);
+        verify(commands).addAllToSetWithScores(anyString(), eq(singletonMap("retried", triggerTime.toEpochMilli())));
+    }
+
+    @Test
+    public void adaptivePollingWaitsUntilNextTask() {
+        scheduler.setClock(Clock.fixed(Instant.ofEpochMilli(1000), ZoneId.systemDefault()));
+        scheduler.setAdaptivePolling(true);
+        when(driver.fetch(any(Function.class))).thenReturn(Optional.of(1020L));
+
+        assertThat(scheduler.nextPollDelayMillis(), is(20L));
+    }
+
+    @Test
+    public void adaptivePollingIsBoundedByMinimumAndPollingDelays() {
+        scheduler.setClock(Clock.fixed(Instant.ofEpochMilli(1000), ZoneId.systemDefault()));
+        scheduler.setAdaptivePolling(true);
+        scheduler.setMinPollingDelayMillis(10);
+        when(driver.fetch(any(Function.class))).thenReturn(Optional.of(1005L), Optional.of(60000L), Optional.empty());
+
+        assertThat("Next task soon", scheduler.nextPollDelayMillis(), is(10L));
+        assertThat("Next task later", scheduler.nextPollDelayMillis(), is(50L));
+        assertThat("No next task", scheduler.nextPollDelayMillis(), is(50L));
+    }
 }
@@ -0,0 +1,51 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class SchedulerIdentityTest {
+
+    @Test
+    public void unshardedKeysUseTheHistoricalKeyAsHashTag() {
+        SchedulerIdentity identity = SchedulerIdentity.of("name").withPriorityLevels(2);
+
+        assertThat(identity.claimKeys(0), is(asList("redis-scheduler.name",
+                                                    "{redis-scheduler.name}.inflight",
+                                                    "{redis-scheduler.name}.payloads",
+                                                    "{redis-scheduler.name}.recurrences",
+                                                    "{redis-scheduler.name}.limits",
+                                                    "{redis-scheduler.name}.limits.inflight",
+                                                    "{redis-scheduler.name}.attempts",
+                                                    "{redis-scheduler.name}.p1")));
+    }
+
+    @Test
+    public void shardedKeysKeepTheHashTagOfTheirShard() {
+        SchedulerIdentity identity = SchedulerIdentity.of("name").withShards(2).withPriorityLevels(2);
+
+        assertThat(identity.claimKeys(1), is(asList("redis-scheduler.{name.1}",
+                                                    "redis-scheduler.{name.1}.inflight",
+                                                    "redis-scheduler.{name.1}.payloads",
+                                                    "redis-scheduler.{name.1}.recurrences",
+                                                    "redis-scheduler.{name.1}.limits",
+                                                    "redis-scheduler.{name.1}.limits.inflight",
+                                                    "redis-scheduler.{name.1}.attempts",
+                                                    "redis-scheduler.{name.1}.p1")));
+    }
+
+    @Test
+    public void keysOfATaskAreDerivedFromItsShard() {
+        SchedulerIdentity identity = SchedulerIdentity.of("name").withShards(2);
+        String taskId = "task";
+        int shard = identity.shardOf(taskId);
+
+        assertThat(identity.keyFor(taskId), is("redis-scheduler.{name." + shard + "}"));
+        assertThat(identity.keyFor(SchedulerIdentity.PAYLOAD_KEY_SUFFIX, taskId),
+                   is("redis-scheduler.{name." + shard + "}.payloads"));
+        assertThat(identity.keys(SchedulerIdentity.PAYLOAD_KEY_SUFFIX).get(shard),
+                   is(identity.keyFor(SchedulerIdentity.PAYLOAD_KEY_SUFFIX, taskId)));
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ShardOwnershipTest {
+
+    @Test
+    public void singleInstanceOwnsAllShards() {
+        assertThat(ShardOwnership.assign(singletonList("a"), "a", 4), is(new int[]{0, 1, 2, 3}));
+    }
+
+    @Test
+    public void splitsShardsEvenlyRegardlessOfOrder() {
+        assertThat(ShardOwnership.assign(asList("c", "a", "b"), "a", 8), is(new int[]{0, 3, 6}));
+        assertThat(ShardOwnership.assign(asList("b", "c", "a"), "b", 8), is(new int[]{1, 4, 7}));
+        assertThat(ShardOwnership.assign(asList("a", "b", "c"), "c", 8), is(new int[]{2, 5}));
+    }
+
+    @Test
+    public void extraInstancesOwnNoShard() {
+        assertThat(ShardOwnership.assign(asList("a", "b", "c"), "c", 2), is(new int[0]));
+    }
+
+    @Test
+    public void unregisteredInstanceOwnsAllShards() {
+        assertThat(ShardOwnership.assign(singletonList("a"), "b", 2), is(new int[]{0, 1}));
+    }
+}
@@ -22,4 +22,9 @@ public class SpringIntegrationTest extends AcceptanceTestSuite {
         clock = ctx.getBean(StubbedClock.class);
         taskTriggerListener = ctx.getBean(LatchedTriggerListener.class);
     }
+
+    @Override
+    protected RedisDriver driver() {
+        return ctx.getBean(RedisDriver.class);
+    }
 }
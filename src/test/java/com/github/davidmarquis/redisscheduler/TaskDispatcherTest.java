@@ -0,0 +1,116 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TaskDispatcherTest {
+
+    private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reservesAtMostTheRemainingCapacity() throws InterruptedException {
+        TaskDispatcher dispatcher = new TaskDispatcher(executor, 5);
+
+        assertThat(dispatcher.reserve(3), is(3));
+        assertThat(dispatcher.reserve(3), is(2));
+    }
+
+    @Test
+    public void waitsForRunningTasksWhenFull() throws InterruptedException {
+        TaskDispatcher dispatcher = new TaskDispatcher(executor, 1);
+        CountDownLatch taskRunning = new CountDownLatch(1);
+        CountDownLatch releaseTask = new CountDownLatch(1);
+
+        dispatcher.reserve(1);
+        dispatcher.dispatch(() -> {
+            taskRunning.countDown();
+            awaitQuietly(releaseTask);
+        });
+        taskRunning.await(1, TimeUnit.SECONDS);
+
+        CountDownLatch reserved = new CountDownLatch(1);
+        new Thread(() -> {
+            try {
+                dispatcher.reserve(1);
+                reserved.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        }).start();
+
+        assertThat("Reserved while full", reserved.await(200, TimeUnit.MILLISECONDS), is(false));
+
+        releaseTask.countDown();
+
+        assertThat("Reserved after task completion", reserved.await(1, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void tryReserveDoesNotWaitWhenFull() {
+        TaskDispatcher dispatcher = new TaskDispatcher(executor, 2);
+
+        assertThat(dispatcher.tryReserve(3), is(2));
+        assertThat(dispatcher.tryReserve(1), is(0));
+        assertThat(dispatcher.isFull(), is(true));
+    }
+
+    @Test
+    public void notifiesWhenRoomIsMadeWhileFull() {
+        AtomicInteger notifications = new AtomicInteger();
+        TaskDispatcher dispatcher = new TaskDispatcher(executor, 2, notifications::incrementAndGet);
+
+        dispatcher.tryReserve(1);
+        dispatcher.release(1);
+        assertThat("Notifications while not full", notifications.get(), is(0));
+
+        dispatcher.tryReserve(2);
+        dispatcher.release(1);
+        dispatcher.release(1);
+        assertThat("Notifications once full", notifications.get(), is(1));
+    }
+
+    @Test
+    public void closingReleasesWaitingReservations() throws InterruptedException {
+        TaskDispatcher dispatcher = new TaskDispatcher(executor, 1);
+        dispatcher.reserve(1);
+        dispatcher.close();
+
+        assertThat(dispatcher.reserve(1), is(0));
+    }
+
+    @Test
+    public void runsRejectedTasksOnCallingThread() throws InterruptedException {
+        TaskDispatcher dispatcher = new TaskDispatcher(task -> {
+            throw new RejectedExecutionException();
+        }, 1);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        dispatcher.reserve(1);
+        dispatcher.dispatch(() -> ran.set(true));
+
+        assertThat("Task ran", ran.get(), is(true));
+        assertThat("Slot released", dispatcher.reserve(1), is(1));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
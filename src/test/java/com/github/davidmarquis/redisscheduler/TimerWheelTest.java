@@ -0,0 +1,70 @@
+package com.github.davidmarquis.redisscheduler;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TimerWheelTest {
+
+    private TimerWheel<String> wheel = new TimerWheel<>(1000, 10000);
+
+    @Test
+    public void expiresItemsInOrderOfDueTime() {
+        wheel.add("third", 10900);
+        wheel.add("first", 10001);
+        wheel.add("second", 10500);
+
+        assertThat(wheel.expire(10000, 10), is(emptyList()));
+        assertThat(wheel.expire(10500, 10), is(asList("first", "second")));
+        assertThat(wheel.nextTimeMillis(), is(10900L));
+        assertThat(wheel.expire(20000, 10), is(asList("third")));
+        assertThat(wheel.nextTimeMillis(), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void addsOverdueItemsToCurrentSlot() {
+        wheel.add("overdue", 5000);
+
+        assertThat(wheel.nextTimeMillis(), is(10000L));
+        assertThat(wheel.expire(10000, 10), is(asList("overdue")));
+    }
+
+    @Test
+    public void rejectsItemsBeyondSpan() {
+        assertThat(wheel.add("far", 10000 + 5000), is(false));
+        assertThat(wheel.size(), is(0));
+    }
+
+    @Test
+    public void wrapsAroundOnceCursorMoved() {
+        wheel.add("first", 10900);
+        wheel.expire(10950, 10);
+        wheel.add("wrapped", 11800);
+
+        assertThat(wheel.nextTimeMillis(), is(11800L));
+        assertThat(wheel.expire(11800, 10), is(asList("wrapped")));
+    }
+
+    @Test
+    public void leavesItemsBeyondMaxInPlace() {
+        wheel.add("first", 10100);
+        wheel.add("second", 10100);
+        wheel.add("third", 10200);
+
+        assertThat(wheel.expire(10300, 1), is(asList("first")));
+        assertThat(wheel.expire(10300, 10), is(asList("second", "third")));
+    }
+
+    @Test
+    public void isEmptyAfterClear() {
+        wheel.add("first", 10100);
+        wheel.clear(20000);
+
+        assertThat(wheel.size(), is(0));
+        assertThat(wheel.add("second", 20900), is(true));
+        assertThat(wheel.expire(20900, 10), is(asList("second")));
+    }
+}